@@ -0,0 +1,56 @@
+package com.skillstorm.backend.Config;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.skillstorm.backend.Services.AppUserService;
+import com.skillstorm.backend.Services.CredentialCacheService;
+
+// Username/password authentication (HTTP Basic) with a credential cache in front of the usual
+// loadUserByUsername + BCrypt check, only successful logins are cached
+// Being an AuthenticationProvider bean, it replaces the DaoAuthenticationProvider Spring Boot would otherwise create
+@Component
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final DaoAuthenticationProvider delegate;
+    private final CredentialCacheService credentialCache;
+
+    public CachingAuthenticationProvider(AppUserService appUserService, PasswordEncoder passwordEncoder,
+                                         CredentialCacheService credentialCache) {
+        this.delegate = new DaoAuthenticationProvider(appUserService);
+        this.delegate.setPasswordEncoder(passwordEncoder);
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        Object credentials = authentication.getCredentials();
+        if (username == null || !(credentials instanceof String password)) {
+            return delegate.authenticate(authentication);
+        }
+
+        Authentication cached = credentialCache.get(username, password);
+        if (cached != null) {
+            return cached;
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            // Cache a copy without credentials or request details, it is handed to later requests as is
+            credentialCache.put(username, password, UsernamePasswordAuthenticationToken.authenticated(
+                result.getPrincipal(), null, result.getAuthorities()));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
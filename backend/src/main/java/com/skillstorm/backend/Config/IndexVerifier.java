@@ -0,0 +1,171 @@
+package com.skillstorm.backend.Config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoException;
+
+// Checks at startup that every repository query method can use an index
+// A method is supported when, for each of its OR branches, one of the filtered fields leads an index of the collection
+// mongo.index-verification: warn (default) logs unsupported methods, fail stops startup, off skips the check
+@Component
+public class IndexVerifier {
+
+    // Negated predicates can't be answered from an index, they don't count as support
+    private static final Set<Part.Type> NEGATIONS = EnumSet.of(
+        Part.Type.NOT_IN, Part.Type.NEGATING_SIMPLE_PROPERTY, Part.Type.NOT_LIKE, Part.Type.NOT_CONTAINING);
+
+    // First field of an @Query filter, e.g. '_id' in { '_id': ?0, ... }
+    private static final Pattern FIRST_QUERY_FIELD = Pattern.compile("\\{\\s*['\"]?([\\w.]+)['\"]?\\s*:");
+
+    // Filter of a pipeline's first stage when it is a $match, e.g. { '$match': { 'userId': ?0 } }
+    private static final Pattern LEADING_MATCH = Pattern.compile("^\\s*\\{\\s*['\"]?\\$match['\"]?\\s*:\\s*(\\{.*)");
+
+    private final ApplicationContext applicationContext;
+    private final MongoTemplate mongoTemplate;
+    private final String mode;
+
+    public IndexVerifier(ApplicationContext applicationContext, MongoTemplate mongoTemplate,
+                         @Value("${mongo.index-verification:warn}") String mode) {
+        this.applicationContext = applicationContext;
+        this.mongoTemplate = mongoTemplate;
+        this.mode = mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if ("off".equalsIgnoreCase(mode)) {
+            return;
+        }
+
+        List<String> unsupported;
+        try {
+            unsupported = findUnsupportedQueryMethods();
+        } catch (DataAccessException | MongoException e) {
+            // Mongo unreachable, nothing to verify against
+            System.err.println("Skipped index verification: " + e.getMessage());
+            return;
+        }
+
+        for (String method : unsupported) {
+            System.err.println("No index supports " + method);
+        }
+        if (!unsupported.isEmpty() && "fail".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException(unsupported.size() + " repository query method(s) have no supporting index: " + unsupported);
+        }
+    }
+
+    // Returns Repository.method (fields) for every query method without a supporting index
+    public List<String> findUnsupportedQueryMethods() {
+        List<String> unsupported = new ArrayList<>();
+        Repositories repositories = new Repositories(applicationContext);
+
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            unsupported.addAll(findUnsupportedQueryMethods(information.getRepositoryInterface(), domainType,
+                information.getQueryMethods(), leadingIndexKeys(domainType)));
+        }
+        return unsupported;
+    }
+
+    // Same check for one repository against the given leading index keys, without Mongo (used by the tests too)
+    // @Query (including @Query + @Update) is checked on the first field of its filter, @Aggregation on the first field
+    // of a leading $match, anything else (derived finders, derived @Update) on the fields parsed from the method name
+    public static List<String> findUnsupportedQueryMethods(Class<?> repositoryInterface, Class<?> domainType,
+                                                           Iterable<Method> queryMethods, Set<String> leadingKeys) {
+        List<String> unsupported = new ArrayList<>();
+        for (Method method : queryMethods) {
+            String name = repositoryInterface.getSimpleName() + "." + method.getName();
+            Query query = method.getAnnotation(Query.class);
+            Aggregation aggregation = method.getAnnotation(Aggregation.class);
+
+            if (query != null && !query.value().isBlank()) {
+                // An empty filter is a deliberate full listing, there is nothing to index
+                if (query.value().replaceAll("\\s", "").equals("{}")) {
+                    continue;
+                }
+                String field = firstQueryField(query.value());
+                if (field == null || !leadingKeys.contains(field)) {
+                    unsupported.add(name + " (" + field + ")");
+                }
+                continue;
+            }
+
+            if (aggregation != null) {
+                String[] pipeline = aggregation.pipeline().length > 0 ? aggregation.pipeline() : aggregation.value();
+                Matcher match = pipeline.length > 0 ? LEADING_MATCH.matcher(pipeline[0]) : null;
+                // Without a leading $match the pipeline reads the whole collection on purpose
+                if (match != null && match.find()) {
+                    String field = firstQueryField(match.group(1));
+                    if (field == null || !leadingKeys.contains(field)) {
+                        unsupported.add(name + " (" + field + ")");
+                    }
+                }
+                continue;
+            }
+
+            PartTree tree = new PartTree(method.getName(), domainType);
+            for (PartTree.OrPart orPart : tree) {
+                List<String> fields = new ArrayList<>();
+                boolean supported = false;
+                for (Part part : orPart) {
+                    String field = fieldName(part);
+                    fields.add(field);
+                    if (!NEGATIONS.contains(part.getType()) && leadingKeys.contains(field)) {
+                        supported = true;
+                    }
+                }
+                if (!supported) {
+                    unsupported.add(name + " " + fields);
+                    break;
+                }
+            }
+        }
+        return unsupported;
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Set<String> leadingIndexKeys(Class<?> domainType) {
+        Set<String> keys = new HashSet<>();
+        for (IndexInfo index : mongoTemplate.indexOps(domainType).getIndexInfo()) {
+            if (!index.getIndexFields().isEmpty()) {
+                keys.add(index.getIndexFields().get(0).getKey());
+            }
+        }
+        return keys;
+    }
+
+    private static String fieldName(Part part) {
+        String path = part.getProperty().toDotPath();
+        return "id".equals(path) ? "_id" : path;
+    }
+
+    private static String firstQueryField(String query) {
+        Matcher matcher = FIRST_QUERY_FIELD.matcher(query);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
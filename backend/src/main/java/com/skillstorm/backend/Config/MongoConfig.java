@@ -32,6 +32,12 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         return connectionString.getDatabase();
     }
 
+    // Build the indexes declared on the models (this config bypasses spring.data.mongodb.auto-index-creation)
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
     @Override
     @Bean
     public MongoClient mongoClient() {
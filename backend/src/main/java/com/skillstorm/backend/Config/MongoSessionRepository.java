@@ -0,0 +1,163 @@
+package com.skillstorm.backend.Config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+import com.skillstorm.backend.Models.StoredSession;
+
+// Spring Session repository backed by the sessions collection, with a short-lived in-process near-cache
+// Any node can serve any session. A save that only moves lastAccessedTime is written at most once per touchInterval
+// Another node can see a change (e.g. a logout) up to nearCacheTtl late, keep it short
+public class MongoSessionRepository implements SessionRepository<MapSession> {
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration maxInactiveInterval;
+    private final Duration nearCacheTtl;
+    private final Duration touchInterval;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer = new DeserializingConverter(getClass().getClassLoader());
+
+    // sessionId -> last session read or written by this node
+    private final Map<String, CachedSession> nearCache = new ConcurrentHashMap<>();
+
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder storeReads = new LongAdder();
+    private final LongAdder storeWrites = new LongAdder();
+    private final LongAdder skippedWrites = new LongAdder();
+    private final LongAdder deletes = new LongAdder();
+
+    // attributes are the serialized form last seen in the store, storedLastAccess is the lastAccessedTime written there
+    private record CachedSession(MapSession session, byte[] attributes, Instant storedLastAccess, Instant cachedAt) {}
+
+    public MongoSessionRepository(MongoTemplate mongoTemplate, Duration maxInactiveInterval,
+                                  Duration nearCacheTtl, Duration touchInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.nearCacheTtl = nearCacheTtl;
+        this.touchInterval = touchInterval;
+    }
+
+    @Override
+    public MapSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(maxInactiveInterval);
+        return session;
+    }
+
+    @Override
+    public void save(MapSession session) {
+        // Session fixation protection changed the id, the old one must stop working everywhere
+        if (session.getOriginalId() != null && !session.getId().equals(session.getOriginalId())) {
+            deleteById(session.getOriginalId());
+        }
+
+        byte[] attributes = serializeAttributes(session);
+        CachedSession cached = nearCache.get(session.getId());
+        if (cached != null
+                && Arrays.equals(attributes, cached.attributes())
+                && session.getMaxInactiveInterval().equals(cached.session().getMaxInactiveInterval())
+                && session.getLastAccessedTime().isBefore(cached.storedLastAccess().plus(touchInterval))) {
+            // Only the access time moved, and recently enough that the stored expiry is still close
+            skippedWrites.increment();
+            nearCache.put(session.getId(), new CachedSession(new MapSession(session), attributes, cached.storedLastAccess(), cached.cachedAt()));
+            return;
+        }
+
+        mongoTemplate.save(new StoredSession(session.getId(), session.getCreationTime(), session.getLastAccessedTime(),
+            session.getMaxInactiveInterval().toSeconds(), attributes));
+        storeWrites.increment();
+        nearCache.put(session.getId(), new CachedSession(new MapSession(session), attributes, session.getLastAccessedTime(), Instant.now()));
+    }
+
+    @Override
+    public MapSession findById(String id) {
+        CachedSession cached = nearCache.get(id);
+        if (cached != null && cached.cachedAt().plus(nearCacheTtl).isAfter(Instant.now()) && !cached.session().isExpired()) {
+            nearCacheHits.increment();
+            return new MapSession(cached.session());
+        }
+
+        storeReads.increment();
+        StoredSession stored = mongoTemplate.findById(id, StoredSession.class);
+        if (stored == null) {
+            nearCache.remove(id);
+            return null;
+        }
+
+        MapSession session = new MapSession(stored.getId());
+        session.setCreationTime(stored.getCreationTime());
+        session.setLastAccessedTime(stored.getLastAccessedTime());
+        session.setMaxInactiveInterval(Duration.ofSeconds(stored.getMaxInactiveSeconds()));
+        if (session.isExpired()) {
+            // The TTL monitor only runs once a minute
+            deleteById(id);
+            return null;
+        }
+        deserializeAttributes(stored.getAttributes()).forEach(session::setAttribute);
+
+        nearCache.put(id, new CachedSession(new MapSession(session), stored.getAttributes(), stored.getLastAccessedTime(), Instant.now()));
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        nearCache.remove(id);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), StoredSession.class);
+        deletes.increment();
+    }
+
+    // Drop near-cache entries that findById would no longer use
+    @Scheduled(fixedDelay = 60000)
+    public void evictStale() {
+        Instant cutoff = Instant.now().minus(nearCacheTtl);
+        nearCache.values().removeIf(cached -> cached.cachedAt().isBefore(cutoff) || cached.session().isExpired());
+    }
+
+    // Counters since startup for this node
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("nearCacheHits", nearCacheHits.sum());
+        stats.put("storeReads", storeReads.sum());
+        stats.put("storeWrites", storeWrites.sum());
+        stats.put("skippedWrites", skippedWrites.sum());
+        stats.put("deletes", deletes.sum());
+        stats.put("nearCacheSize", (long) nearCache.size());
+        return stats;
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private byte[] serializeAttributes(MapSession session) {
+        HashMap<String, Object> attributes = new HashMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        return serializer.convert(attributes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> deserializeAttributes(byte[] attributes) {
+        if (attributes == null || attributes.length == 0) {
+            return Map.of();
+        }
+        return (Map<String, Object>) deserializer.convert(attributes);
+    }
+}
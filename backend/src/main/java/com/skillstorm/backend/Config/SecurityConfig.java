@@ -19,6 +19,7 @@ import org.springframework.security.web.AuthenticationEntryPoint;
 import jakarta.servlet.http.HttpServletResponse;
 
 import com.skillstorm.backend.Services.CustomOAuth2UserService;
+import com.skillstorm.backend.Services.TokenService;
 
 // import com.skillstorm.backend.Services.CustomOAuth2UserService;
 
@@ -39,6 +40,7 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain securityFilterChain(
         CustomOAuth2UserService customOAuth2UserService,
+        TokenService tokenService,
         HttpSecurity http,
         @Value("${frontend.url:http://localhost:3000}") String frontendUrl
     ) throws Exception {
@@ -106,10 +108,19 @@ public class SecurityConfig {
                 .requestMatchers("/transactions/all").hasRole("ADMIN") //GET all transactions
                 .requestMatchers("/transactions/delete/{id}").hasRole("ADMIN") //DELETE transaction by ID
 
+                //REPORT
+                .requestMatchers("/reports/daily-revenue/rebuild").hasRole("ADMIN") //POST rebuild daily revenue rollup
+
+                //SESSION
+                .requestMatchers("/sessions/stats").hasRole("ADMIN") //GET session store counters
+
 
 
             //CUSTOMER OR ADMIN ROUTES///////////////////////////////////////////////////////////////////////
 
+                //AUTH
+                .requestMatchers("/auth/token").hasAnyRole("ADMIN", "CUSTOMER") //POST exchange current login for a signed token
+
                 //APPUSER
                 .requestMatchers("/users/me").hasAnyRole("ADMIN", "CUSTOMER") //GET current user info
                 .requestMatchers("/users/{userId}/payment-methods").hasAnyRole("ADMIN", "CUSTOMER") //GET user payment methods
@@ -136,6 +147,9 @@ public class SecurityConfig {
                 .requestMatchers("/logout").permitAll() // Logout for any authenticated user
                 .requestMatchers("/users/logout").permitAll() // Logout for any authenticated user
 
+            //STRIPE WEBHOOK (verified by its Stripe-Signature header)////////////////////////////////////////
+                .requestMatchers("/stripe/webhook").permitAll()
+
             //TEST ROUTES/////////////////////////////////////////////////////////////////////////////////////
                 .requestMatchers("/tests/hello").permitAll()
                 .requestMatchers("/tests/private-info").authenticated()
@@ -172,6 +186,17 @@ public class SecurityConfig {
                 })
             );
 
+        //Optional stateless mode: also accept "Authorization: Bearer <token>" issued by /auth/token
+        if (tokenService.isEnabled()) {
+            http.oauth2ResourceServer(resourceServer -> resourceServer
+                .jwt(jwt -> jwt
+                    .decoder(tokenService.decoder())
+                    .jwtAuthenticationConverter(tokenService.authenticationConverter())
+                )
+                .authenticationEntryPoint(noPopupBasicAuthEntryPoint())
+            );
+        }
+
         return http.build();
     }
 
@@ -190,12 +215,14 @@ public class SecurityConfig {
             "Content-Type",
             "Authorization",
             "X-XSRF-TOKEN",
+            "Idempotency-Key",
             "Accept",
             "Origin",
             "Access-Control-Request-Method",
             "Access-Control-Request-Headers"
         ));
-        config.setExposedHeaders(List.of("*")); // Expose all headers
+        // Same for exposed headers: "*" is not honored on credentialed requests, so the response headers the frontend reads are listed
+        config.setExposedHeaders(List.of("Next-Cursor", "ETag", "Error"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,38 @@
+package com.skillstorm.backend.Config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.session.web.http.DefaultCookieSerializer;
+
+// Keep HTTP sessions (OAuth2 login) in Mongo instead of Tomcat's per-node memory, so any node can serve any user
+// and a restart doesn't log everyone out. Turned off with sessions.mongo.enabled=false
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "sessions.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class SessionConfig {
+
+    @Bean
+    public MongoSessionRepository sessionRepository(
+        MongoTemplate mongoTemplate,
+        @Value("${server.servlet.session.timeout:30m}") Duration maxInactiveInterval,
+        @Value("${sessions.mongo.near-cache-ttl:5s}") Duration nearCacheTtl,
+        @Value("${sessions.mongo.touch-interval:60s}") Duration touchInterval
+    ) {
+        return new MongoSessionRepository(mongoTemplate, maxInactiveInterval, nearCacheTtl, touchInterval);
+    }
+
+    // Same cookie name as the Tomcat session, so the frontend and the logout handler (deleteCookies) keep working
+    @Bean
+    public CookieSerializer cookieSerializer() {
+        DefaultCookieSerializer serializer = new DefaultCookieSerializer();
+        serializer.setCookieName("JSESSIONID");
+        return serializer;
+    }
+}
@@ -0,0 +1,41 @@
+package com.skillstorm.backend.Config;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Documents written before @Version was added have no version field
+// Spring Data treats a null version as a new document and would insert (duplicate key) instead of update,
+// so every versioned collection gets version 0 on startup, before the server accepts requests
+@Component
+public class VersionBackfill {
+
+    private static final List<String> VERSIONED_COLLECTIONS = List.of("rooms", "reservations", "transactions");
+
+    private final MongoTemplate mongoTemplate;
+
+    public VersionBackfill(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        for (String collection : VERSIONED_COLLECTIONS) {
+            try {
+                mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("version").exists(false)),
+                    Update.update("version", 0L),
+                    collection);
+            } catch (Exception e) {
+                // Don't block startup if Mongo is unreachable, the next start will retry
+                System.err.println("Failed to backfill version field for " + collection + ": " + e.getMessage());
+            }
+        }
+    }
+}
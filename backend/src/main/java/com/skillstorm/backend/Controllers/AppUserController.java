@@ -20,6 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.skillstorm.backend.DTOs.AppUserResponseDTO;
 import com.skillstorm.backend.Models.AppUser;
+import com.skillstorm.backend.Services.CursorService;
 import com.skillstorm.backend.Services.AppUserService;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentMethod;
@@ -42,10 +43,21 @@ public class AppUserController {
 
 //GET MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
+    //GET all users, or one page of them when size, sort or cursor is given
+    //The cursor for the next page comes back in the Next-Cursor header
     @GetMapping("/all")
-    public ResponseEntity<List<AppUser>> getAllUsers() {
-        List<AppUser> users = appUserService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<AppUser>> getAllUsers(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
+        if (!CursorService.isPaged(size, sort, cursor)) {
+            return ResponseEntity.ok(appUserService.getAllUsers());
+        }
+        try {
+            return appUserService.getUserPage(size, sort, cursor).toResponseEntity();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", "Invalid page request: " + e.getMessage()).body(null);
+        }
     }
 
     // In AppUserController.java - add GET endpoint
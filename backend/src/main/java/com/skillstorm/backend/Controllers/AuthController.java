@@ -0,0 +1,49 @@
+package com.skillstorm.backend.Controllers;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.skillstorm.backend.Services.TokenService;
+
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+
+    private final TokenService tokenService;
+
+    public AuthController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+
+
+//POST MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
+
+    //Exchange the current login (Basic, OAuth2 session or a still valid token) for a signed token
+    //Send it afterwards as "Authorization: Bearer <token>", no session or password needed
+    // POST /auth/token
+    @PostMapping("/token")
+    public ResponseEntity<Map<String, Object>> issueToken(Authentication authentication) {
+        if (!tokenService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header("Error", "Token authentication is disabled").build();
+        }
+        try {
+            TokenService.IssuedToken token = tokenService.issueToken(authentication);
+            return ResponseEntity.ok(Map.of(
+                "token", token.token(),
+                "tokenType", "Bearer",
+                "expiresAt", token.expiresAt().toString()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", "User not found: " + e.getMessage()).build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
+        }
+    }
+}
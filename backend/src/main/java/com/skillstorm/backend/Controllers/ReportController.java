@@ -1,13 +1,18 @@
-package com.skillstorm.backend.Controllers;import java.time.LocalDate;
+package com.skillstorm.backend.Controllers;import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.skillstorm.backend.Services.ReportService;
 
@@ -36,18 +41,40 @@ public class ReportController {
             return ResponseEntity.internalServerError().build();
         }
     }
-    //Get transactions for a certain date range 
-    // GET /reports/transactions/export?startDate=2025-01-01&endDate=2025-12-31
+    //Get transactions for a certain date range, streamed as json (array, default), ndjson or csv
+    // GET /reports/transactions/export?startDate=2025-01-01&endDate=2025-12-31&format=csv
     @GetMapping("/transactions/export")
-    public ResponseEntity<List<Map<String, Object>>> exportTransactions(
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        try {
-            List<Map<String, Object>> transactions = reportService.exportTransactionHistory(startDate, endDate);
-            return ResponseEntity.ok(transactions);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "json") String format) {
+        String exportFormat = format.toLowerCase();
+        MediaType contentType;
+        switch (exportFormat) {
+            case "json" -> contentType = MediaType.APPLICATION_JSON;
+            case "ndjson" -> contentType = MediaType.APPLICATION_NDJSON;
+            case "csv" -> contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+            default -> {
+                return ResponseEntity.badRequest().header("Error", "Unsupported export format: " + format).build();
+            }
+        }
+
+        // Runs on the async executor after this method returns, errors past the first byte can only be logged
+        StreamingResponseBody body = out -> {
+            try {
+                reportService.writeTransactionHistory(startDate, endDate, exportFormat, out);
+            } catch (Exception e) {
+                System.err.println("Transaction export failed: " + e.getMessage());
+                throw e;
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(contentType);
+        if ("csv".equals(exportFormat)) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions-" + startDate + "-to-" + endDate + ".csv\"");
         }
+        return response.body(body);
     }
     
     //Get list revenues for each day in a date range
@@ -63,4 +90,16 @@ public class ReportController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    //Recompute the daily revenue rollup from all transactions (admin only, run when no bookings are being made)
+    // POST /reports/daily-revenue/rebuild
+    @PostMapping("/daily-revenue/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildDailyRevenue() {
+        try {
+            int rows = reportService.rebuildDailyRevenue();
+            return ResponseEntity.ok(Map.of("rows", rows));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().header("Error", e.getMessage()).build();
+        }
+    }
 }
@@ -2,20 +2,26 @@ package com.skillstorm.backend.Controllers;
 
 import java.util.List;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.skillstorm.backend.DTOs.CreateReservationRequest;
 import com.skillstorm.backend.DTOs.UpdateReservationRequest;
 import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Services.CursorService;
+import com.skillstorm.backend.Services.IdempotencyService;
 import com.skillstorm.backend.Services.ReservationService;
 import com.stripe.exception.StripeException;
 
@@ -25,19 +31,32 @@ import com.stripe.exception.StripeException;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
 
-    public ReservationController(ReservationService reservationService) {
+    public ReservationController(ReservationService reservationService, IdempotencyService idempotencyService) {
         this.reservationService = reservationService;
+        this.idempotencyService = idempotencyService;
     }
     
 
 
 //GET MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
+    //GET all reservations, or one page of them when size, sort or cursor is given
+    //The cursor for the next page comes back in the Next-Cursor header
     @GetMapping("/all")
-    public ResponseEntity<List<Reservation>> getAllReservations() {
-        List<Reservation> reservations = reservationService.getAllReservations();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<List<Reservation>> getAllReservations(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
+        if (!CursorService.isPaged(size, sort, cursor)) {
+            return ResponseEntity.ok(reservationService.getAllReservations());
+        }
+        try {
+            return reservationService.getReservationPage(size, sort, cursor).toResponseEntity();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", "Invalid page request: " + e.getMessage()).body(null);
+        }
     }
 
     // Get reservations by userId
@@ -64,14 +83,22 @@ public class ReservationController {
 
 //POST MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
-    // Create reservation with payment authorization (holds funds)
+    // Create reservation, answers at once with status PENDING_PAYMENT while the funds are held in the background
+    // Poll GET /reservations/{id} until it is PENDING (funds held) or PAYMENT_FAILED
+    // Optional Idempotency-Key header: a retried request returns the original reservation instead of booking again
     @PostMapping("/new")
-    public ResponseEntity<Object> createReservation(@RequestBody CreateReservationRequest request) {
+    public ResponseEntity<Object> createReservation(@RequestBody CreateReservationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         try {
-            Reservation createdReservation = reservationService.createReservation(request);
+            Reservation createdReservation = idempotencyService.execute(idempotencyKey, callerOf(authentication),
+                    "POST /reservations/new\n" + request,
+                    () -> reservationService.createReservation(request));
             return new ResponseEntity<>(createdReservation, HttpStatus.CREATED);
         } catch (StripeException e) {
             return ResponseEntity.badRequest().header("Error", "Stripe error: " + e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", e.getMessage()).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid reservation data: " + e.getMessage()).build();
         } catch (Exception e) {
@@ -83,16 +110,24 @@ public class ReservationController {
     
 //PUT MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
-    // Check-in: captures the held payment
+    // Check-in: confirms the reservation, the held payment is captured in the background
     @PutMapping("/{id}/check-in")
-    public ResponseEntity<Object> checkIn(@PathVariable String id) {
+    public ResponseEntity<Object> checkIn(@PathVariable String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         try {
-            Reservation reservation = reservationService.checkIn(id);
+            Reservation reservation = idempotencyService.execute(idempotencyKey, callerOf(authentication),
+                    "PUT /reservations/" + id + "/check-in",
+                    () -> reservationService.checkIn(id));
             return ResponseEntity.ok(reservation);
         } catch (StripeException e) {
             return ResponseEntity.badRequest().header("Error", "Stripe error: " + e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", e.getMessage()).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid reservation data: " + e.getMessage()).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", "Reservation was modified concurrently, please retry").build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
         }
@@ -100,29 +135,45 @@ public class ReservationController {
 
     //Check-out: updates the reservation to completed status
     @PutMapping("/{id}/check-out")
-    public ResponseEntity<Object> checkOut(@PathVariable String id) {
+    public ResponseEntity<Object> checkOut(@PathVariable String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         try {
-            Reservation reservation = reservationService.checkOut(id);
+            Reservation reservation = idempotencyService.execute(idempotencyKey, callerOf(authentication),
+                    "PUT /reservations/" + id + "/check-out",
+                    () -> reservationService.checkOut(id));
             return ResponseEntity.ok(reservation);
         } catch (StripeException e) {
             return ResponseEntity.badRequest().header("Error", "Stripe error: " + e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", e.getMessage()).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid reservation data: " + e.getMessage()).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", "Reservation was modified concurrently, please retry").build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error: " + e.getMessage()).build();
         }
     }
 
-    // Cancel: releases the held payment
+    // Cancel: releases the room, the held payment is released in the background
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<Object> cancelReservation(@PathVariable String id) {
+    public ResponseEntity<Object> cancelReservation(@PathVariable String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         try {
-            Reservation reservation = reservationService.cancelReservation(id);
+            Reservation reservation = idempotencyService.execute(idempotencyKey, callerOf(authentication),
+                    "PUT /reservations/" + id + "/cancel",
+                    () -> reservationService.cancelReservation(id));
             return ResponseEntity.ok(reservation);
         } catch (StripeException e) {
             return ResponseEntity.badRequest().header("Error", "Stripe error: " + e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", e.getMessage()).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid reservation data: " + e.getMessage()).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", "Reservation was modified concurrently, please retry").build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
         }
@@ -130,14 +181,22 @@ public class ReservationController {
 
     //Update reservation (Required fields: checkIn, checkOut, numGuests, totalPrice)
     @PutMapping("/{id}/update")
-    public ResponseEntity<Object> updateReservation(@PathVariable String id, @RequestBody UpdateReservationRequest request) {
+    public ResponseEntity<Object> updateReservation(@PathVariable String id, @RequestBody UpdateReservationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         try {
-            Reservation reservation = reservationService.updateReservation(id, request);
+            Reservation reservation = idempotencyService.execute(idempotencyKey, callerOf(authentication),
+                    "PUT /reservations/" + id + "/update\n" + request,
+                    () -> reservationService.updateReservation(id, request));
             return ResponseEntity.ok(reservation);
         } catch (StripeException e) {
             return ResponseEntity.badRequest().header("Error", "Stripe error: " + e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", e.getMessage()).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid reservation data: " + e.getMessage()).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", "Reservation was modified concurrently, please retry").build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
         }
@@ -157,4 +216,13 @@ public class ReservationController {
            return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
         }
     }
-}
\ No newline at end of file
+
+
+
+//HELPER METHODS
+
+    // Idempotency keys are scoped to the authenticated caller
+    private String callerOf(Authentication authentication) {
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+}
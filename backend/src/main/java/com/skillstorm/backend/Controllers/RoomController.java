@@ -3,9 +3,12 @@ package com.skillstorm.backend.Controllers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.skillstorm.backend.DTOs.RoomSummaryDTO;
 import com.skillstorm.backend.Models.Room;
+import com.skillstorm.backend.Services.CursorService;
 import com.skillstorm.backend.Services.RoomService;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -35,11 +38,30 @@ public class RoomController {
 
 //GET MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
-    //GET all rooms
+    //GET all rooms as summaries (id, roomNumber, typeId, status)
+    //Pass datesFrom and datesTo (checkout style, datesTo excluded) to also get the reserved nights in that window
+    //Or size, sort and/or cursor for one page of summaries, the next page's cursor comes back in the Next-Cursor header
 	@GetMapping ("/all")
-    public ResponseEntity<List<Room>> getAllRooms() {
-        List<Room> rooms = roomService.getAllRooms();
-        return ResponseEntity.ok(rooms);
+    public ResponseEntity<List<RoomSummaryDTO>> getAllRooms(
+            @RequestParam(required = false) LocalDate datesFrom,
+            @RequestParam(required = false) LocalDate datesTo,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
+        try {
+            if (CursorService.isPaged(size, sort, cursor)) {
+                if (datesFrom != null || datesTo != null) {
+                    return ResponseEntity.badRequest().header("Error", "Invalid page request: a date window can't be paged").body(null);
+                }
+                return roomService.getRoomSummaryPage(size, sort, cursor).toResponseEntity();
+            }
+            List<RoomSummaryDTO> rooms = roomService.getRoomSummaries(datesFrom, datesTo);
+            return ResponseEntity.ok(rooms);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", "Invalid request: " + e.getMessage()).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().header("Error", "There was an internal server error").body(null);
+        }
     }
 
     //GET room by ID
@@ -58,16 +80,19 @@ public class RoomController {
     }
 
     //GET available rooms by dates, with optional typeId as path variable (/{typeId}/available)
+    //Returns summaries, datesFrom and datesTo work as for /all
     @GetMapping({"/available", "/{typeId}/available"})
-    public ResponseEntity<List<Room>> getAvailableRooms(
+    public ResponseEntity<List<RoomSummaryDTO>> getAvailableRooms(
             @RequestParam List<String> dates,
-            @PathVariable(required = false) String typeId) {
+            @PathVariable(required = false) String typeId,
+            @RequestParam(required = false) LocalDate datesFrom,
+            @RequestParam(required = false) LocalDate datesTo) {
         try {
             //Parse date strings to LocalDate
             List<LocalDate> requestedDates = dates.stream()
                     .map(LocalDate::parse)
                     .collect(Collectors.toList());
-            List<Room> availableRooms = roomService.findAvailableRooms(requestedDates, typeId);
+            List<RoomSummaryDTO> availableRooms = roomService.findAvailableRoomSummaries(requestedDates, typeId, datesFrom, datesTo);
             return ResponseEntity.ok(availableRooms);
         } catch (Exception e) {
             return ResponseEntity.badRequest().header("Error", "Invalid request: " + e.getMessage()).body(null);
@@ -86,6 +111,8 @@ public class RoomController {
             return ResponseEntity.ok(room);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "Invalid room data: " + e.getMessage()).body(null);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Error", "Room was modified concurrently, please retry").body(null);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error").body(null);
         }
@@ -95,7 +122,7 @@ public class RoomController {
    
 //POST MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////    
 
-    //CREATE new room (Fields required: roomNumber, typeId, status, datesReserved)
+    //CREATE new room (Fields required: roomNumber, typeId, status), nights are only reserved through reservations
     @PostMapping("/new")
     public ResponseEntity<Room> createRoom(@RequestBody Room room) {
         try {
@@ -1,7 +1,9 @@
 package com.skillstorm.backend.Controllers;
 
+import java.time.Instant;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.skillstorm.backend.Models.RoomType;
 import com.skillstorm.backend.Services.RoomTypeService;
+import com.skillstorm.backend.Services.RoomTypeService.CatalogSnapshot;
 
 
 @RestController
@@ -33,10 +36,12 @@ public class RoomTypeController {
 //GET MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
     //GET all room types
+    //Sends ETag/Last-Modified, a request with a matching If-None-Match (or If-Modified-Since) gets 304 Not Modified
     @GetMapping("/all")
     public ResponseEntity<List<RoomType>> getAllRoomTypes() {
-        List<RoomType> roomTypes = roomTypeService.getAllRoomTypes();
-        return ResponseEntity.ok(roomTypes);
+        CatalogSnapshot catalog = roomTypeService.getCatalogSnapshot();
+        return withValidators(ResponseEntity.ok(), catalog.etag(), catalog.lastModified())
+            .body(catalog.roomTypes());
     }
 
     //GET room type by ID
@@ -44,7 +49,8 @@ public class RoomTypeController {
     public ResponseEntity<RoomType> findRoomTypeById(@PathVariable String id){
         try {
             RoomType roomType = roomTypeService.findRoomTypeById(id);
-            return new ResponseEntity<>(roomType, HttpStatus.OK);
+            return withValidators(ResponseEntity.ok(), roomTypeService.getRoomTypeETag(id), roomType.getUpdatedAt())
+                .body(roomType);
             
         }catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().header("Error", "There were no room type matches found").body(null);
@@ -114,5 +120,21 @@ public class RoomTypeController {
             return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
         }
     }
-    
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Spring answers conditional GETs with 304 from these headers
+    // no-cache: browsers and the CDN may store the response but must revalidate it each time
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder response, String etag, Instant lastModified) {
+        response.cacheControl(CacheControl.noCache().cachePublic());
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response;
+    }
 }
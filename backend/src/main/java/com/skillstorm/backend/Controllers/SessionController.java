@@ -0,0 +1,34 @@
+package com.skillstorm.backend.Controllers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.skillstorm.backend.Config.MongoSessionRepository;
+
+@RestController
+@RequestMapping("/sessions")
+public class SessionController {
+
+    private final ObjectProvider<MongoSessionRepository> sessionRepository;
+
+    public SessionController(ObjectProvider<MongoSessionRepository> sessionRepository) {
+        this.sessionRepository = sessionRepository;
+    }
+
+    //Get session store counters for this node (near-cache hits, store reads/writes, skipped writes, deletes)
+    // GET /sessions/stats
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Long>> getStats() {
+        MongoSessionRepository repository = sessionRepository.getIfAvailable();
+        if (repository == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header("Error", "Mongo session store is disabled").build();
+        }
+        return ResponseEntity.ok(repository.stats());
+    }
+}
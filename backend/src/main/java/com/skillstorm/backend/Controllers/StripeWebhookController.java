@@ -0,0 +1,48 @@
+package com.skillstorm.backend.Controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.skillstorm.backend.Services.StripeWebhookService;
+import com.stripe.exception.SignatureVerificationException;
+
+@RestController
+@RequestMapping("/stripe")
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    public StripeWebhookController(StripeWebhookService stripeWebhookService) {
+        this.stripeWebhookService = stripeWebhookService;
+    }
+
+
+
+//POST MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
+
+    //Stripe event deliveries, authenticated by the Stripe-Signature header instead of a login
+    //Any non-2xx answer makes Stripe redeliver the event later
+    // POST /stripe/webhook
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> receive(@RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        if (!stripeWebhookService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header("Error", "Stripe webhook is not configured").build();
+        }
+        try {
+            stripeWebhookService.handle(payload, signature);
+            return ResponseEntity.ok().build();
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.badRequest().header("Error", "Invalid signature: " + e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", e.getMessage()).build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().header("Error", "There was an internal server error").build();
+        }
+    }
+}
@@ -6,9 +6,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.skillstorm.backend.Models.Transaction;
+import com.skillstorm.backend.Services.CursorService;
 import com.skillstorm.backend.Services.TransactionService;
 
 @RestController
@@ -26,11 +28,21 @@ public class TransactionController {
 
 //GET MAPPINGS////////////////////////////////////////////////////////////////////////////////////////////
 
-    //GET all transactions
+    //GET all transactions, or one page of them when size, sort or cursor is given
+    //The cursor for the next page comes back in the Next-Cursor header
     @GetMapping("/all")
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<List<Transaction>> getAllTransactions(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
+        if (!CursorService.isPaged(size, sort, cursor)) {
+            return ResponseEntity.ok(transactionService.getAllTransactions());
+        }
+        try {
+            return transactionService.getTransactionPage(size, sort, cursor).toResponseEntity();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("Error", "Invalid page request: " + e.getMessage()).body(null);
+        }
     }
 
     //GET transaction by TRANSACTION ID
@@ -0,0 +1,44 @@
+package com.skillstorm.backend.DTOs;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.skillstorm.backend.Models.ReservedInterval;
+import com.skillstorm.backend.Models.Room;
+
+// Room as listed by /rooms/all and /rooms/available
+// datesReserved is only present when the caller asked for a date window, and then only holds the nights inside it
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RoomSummaryDTO(
+    String id,
+    Integer roomNumber,
+    String typeId,
+    String status,
+    List<LocalDate> datesReserved
+) {
+
+    // Summary without reserved nights
+    public static RoomSummaryDTO of(Room room) {
+        return new RoomSummaryDTO(room.getId(), room.getRoomNumber(), room.getTypeId(), room.getStatus(), null);
+    }
+
+    // Summary with the reserved nights in [from, to), or without any when there is no window
+    // Only the nights inside the window are expanded, however long the stays are
+    public static RoomSummaryDTO of(Room room, LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return of(room);
+        }
+        TreeSet<LocalDate> nights = new TreeSet<>();
+        for (ReservedInterval interval : room.getReservedIntervals()) {
+            LocalDate night = interval.getStart().isBefore(from) ? from : interval.getStart();
+            LocalDate end = interval.getEnd().isAfter(to) ? to : interval.getEnd();
+            for (; night.isBefore(end); night = night.plusDays(1)) {
+                nights.add(night);
+            }
+        }
+        return new RoomSummaryDTO(room.getId(), room.getRoomNumber(), room.getTypeId(), room.getStatus(), new ArrayList<>(nights));
+    }
+}
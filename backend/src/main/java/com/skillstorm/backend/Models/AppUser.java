@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -16,6 +17,8 @@ public class AppUser implements UserDetails {
 	@Id
 	private String id;
 
+	// Looked up on every HTTP Basic request (loadUserByUsername)
+	@Indexed(name = "email", unique = true)
 	private String email;
 
 	private String password; //IS HASHED
@@ -0,0 +1,103 @@
+package com.skillstorm.backend.Models;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Per-day, per-status transaction totals, kept up to date by RevenueRollupService with $inc deltas
+@Document(collection = "daily_revenue")
+@CompoundIndex(name = "status_date", def = "{'status': 1, 'date': 1}")
+public class DailyRevenue {
+
+    // date|status, e.g. 2025-06-01|CAPTURED
+    @Id
+    private String id;
+
+    @Indexed(name = "date")
+    private LocalDate date;
+
+    private String status;
+
+    // Transactions authorized on this date that currently have this status
+    private long authorizedAmount;
+
+    private long authorizedCount;
+
+    // Transactions captured on this date (only set on CAPTURED rows)
+    private long capturedAmount;
+
+    private long capturedCount;
+
+    // Constructors
+    public DailyRevenue() {}
+
+    public DailyRevenue(LocalDate date, String status) {
+        this.id = idOf(date, status);
+        this.date = date;
+        this.status = status;
+    }
+
+    public static String idOf(LocalDate date, String status) {
+        return date + "|" + status;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getAuthorizedAmount() {
+        return authorizedAmount;
+    }
+
+    public void setAuthorizedAmount(long authorizedAmount) {
+        this.authorizedAmount = authorizedAmount;
+    }
+
+    public long getAuthorizedCount() {
+        return authorizedCount;
+    }
+
+    public void setAuthorizedCount(long authorizedCount) {
+        this.authorizedCount = authorizedCount;
+    }
+
+    public long getCapturedAmount() {
+        return capturedAmount;
+    }
+
+    public void setCapturedAmount(long capturedAmount) {
+        this.capturedAmount = capturedAmount;
+    }
+
+    public long getCapturedCount() {
+        return capturedCount;
+    }
+
+    public void setCapturedCount(long capturedCount) {
+        this.capturedCount = capturedCount;
+    }
+}
@@ -0,0 +1,78 @@
+package com.skillstorm.backend.Models;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Stored result of a request made with an Idempotency-Key header
+// Records expire through a TTL index on createdAt
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    // Hash of the caller and the Idempotency-Key value
+    @Id
+    private String id;
+
+    // Hash of the method, path and body of the first request made with this key
+    private String requestHash;
+
+    private String status; // IN_PROGRESS or COMPLETED
+
+    private Reservation response;
+
+    @Indexed(name = "createdAt_ttl", expireAfterSeconds = 86400)
+    private Instant createdAt;
+
+    // Constructors
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash, String status, Instant createdAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Reservation getResponse() {
+        return response;
+    }
+
+    public void setResponse(Reservation response) {
+        this.response = response;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
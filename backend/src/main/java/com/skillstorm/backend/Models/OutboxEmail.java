@@ -0,0 +1,142 @@
+package com.skillstorm.backend.Models;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Email queued by a request and sent later by EmailOutboxDispatcher
+// Sent emails expire through a TTL index on sentAt, dead ones are kept for inspection
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class OutboxEmail {
+
+    @Id
+    private String id;
+
+    private String to;
+
+    private String subject;
+
+    private String body;
+
+    private String status; // PENDING, SENDING, SENT or DEAD
+
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    // A SENDING email whose lease has run out (dispatcher crashed mid-batch) is picked up again
+    private Instant leaseExpiresAt;
+
+    private String lastError;
+
+    private Instant createdAt;
+
+    @Indexed(name = "sentAt_ttl", expireAfterSeconds = 604800)
+    private Instant sentAt;
+
+    // Constructors
+    public OutboxEmail() {}
+
+    public OutboxEmail(String to, String subject, String body, Instant createdAt) {
+        this.to = to;
+        this.subject = subject;
+        this.body = body;
+        this.status = "PENDING";
+        this.attempts = 0;
+        this.nextAttemptAt = createdAt;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+}
@@ -0,0 +1,275 @@
+package com.skillstorm.backend.Models;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Stripe call a reservation is waiting for, written in the same MongoDB transaction as the reservation change
+// and carried out later by PaymentSagaService (the request never waits for Stripe)
+// Finished steps expire through a TTL index on doneAt, dead ones are kept for inspection
+@Document(collection = "payment_outbox")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class PaymentStep {
+
+    @Id
+    private String id;
+
+    private String reservationId;
+
+    private String type; // AUTHORIZE, REAUTHORIZE, CAPTURE or CANCEL
+
+    private String status; // PENDING, RUNNING, DONE or DEAD
+
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    // A RUNNING step whose lease has run out (worker crashed mid-call) is picked up again
+    // The Stripe idempotency key is derived from the step id, so the repeated call returns the original result
+    private Instant leaseExpiresAt;
+
+    private String lastError;
+
+    private Instant createdAt;
+
+    @Indexed(name = "doneAt_ttl", expireAfterSeconds = 604800)
+    private Instant doneAt;
+
+    // Amount to authorize (AUTHORIZE, REAUTHORIZE) or to capture (CAPTURE) in cents
+    private Long amount;
+
+    // Card to authorize (AUTHORIZE)
+    private String paymentMethodId;
+
+    // Hold to capture or cancel (CAPTURE, CANCEL), the hold being adjusted or replaced (REAUTHORIZE),
+    // or the hold placed (AUTHORIZE, set as soon as Stripe returns it)
+    private String paymentIntentId;
+
+    // New hold placed because the old one couldn't be raised (REAUTHORIZE), set as soon as Stripe returns it
+    private String replacementPaymentIntentId;
+
+    // Stay the new hold is for (REAUTHORIZE), applied to the reservation once it is authorized
+    private String roomId;
+
+    private Integer roomNumber;
+
+    private LocalDate checkIn;
+
+    private LocalDate checkOut;
+
+    private Integer numGuests;
+
+    private BigDecimal totalPrice;
+
+    // Constructors
+    public PaymentStep() {}
+
+    public PaymentStep(String reservationId, String type, Instant createdAt) {
+        this.reservationId = reservationId;
+        this.type = type;
+        this.status = "PENDING";
+        this.attempts = 0;
+        this.nextAttemptAt = createdAt;
+        this.createdAt = createdAt;
+    }
+
+    public static PaymentStep authorize(String reservationId, Long amount, String paymentMethodId) {
+        PaymentStep step = new PaymentStep(reservationId, "AUTHORIZE", Instant.now());
+        step.setAmount(amount);
+        step.setPaymentMethodId(paymentMethodId);
+        return step;
+    }
+
+    public static PaymentStep reauthorize(String reservationId, String paymentIntentId, Long amount, String roomId, Integer roomNumber,
+                                          LocalDate checkIn, LocalDate checkOut, Integer numGuests, BigDecimal totalPrice) {
+        PaymentStep step = new PaymentStep(reservationId, "REAUTHORIZE", Instant.now());
+        step.setPaymentIntentId(paymentIntentId);
+        step.setAmount(amount);
+        step.setRoomId(roomId);
+        step.setRoomNumber(roomNumber);
+        step.setCheckIn(checkIn);
+        step.setCheckOut(checkOut);
+        step.setNumGuests(numGuests);
+        step.setTotalPrice(totalPrice);
+        return step;
+    }
+
+    public static PaymentStep capture(String reservationId, String paymentIntentId, Long amount) {
+        PaymentStep step = new PaymentStep(reservationId, "CAPTURE", Instant.now());
+        step.setPaymentIntentId(paymentIntentId);
+        step.setAmount(amount);
+        return step;
+    }
+
+    public static PaymentStep cancel(String reservationId, String paymentIntentId) {
+        PaymentStep step = new PaymentStep(reservationId, "CANCEL", Instant.now());
+        step.setPaymentIntentId(paymentIntentId);
+        return step;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getDoneAt() {
+        return doneAt;
+    }
+
+    public void setDoneAt(Instant doneAt) {
+        this.doneAt = doneAt;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public String getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public void setPaymentMethodId(String paymentMethodId) {
+        this.paymentMethodId = paymentMethodId;
+    }
+
+    public String getPaymentIntentId() {
+        return paymentIntentId;
+    }
+
+    public void setPaymentIntentId(String paymentIntentId) {
+        this.paymentIntentId = paymentIntentId;
+    }
+
+    public String getReplacementPaymentIntentId() {
+        return replacementPaymentIntentId;
+    }
+
+    public void setReplacementPaymentIntentId(String replacementPaymentIntentId) {
+        this.replacementPaymentIntentId = replacementPaymentIntentId;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+
+    public Integer getRoomNumber() {
+        return roomNumber;
+    }
+
+    public void setRoomNumber(Integer roomNumber) {
+        this.roomNumber = roomNumber;
+    }
+
+    public LocalDate getCheckIn() {
+        return checkIn;
+    }
+
+    public void setCheckIn(LocalDate checkIn) {
+        this.checkIn = checkIn;
+    }
+
+    public LocalDate getCheckOut() {
+        return checkOut;
+    }
+
+    public void setCheckOut(LocalDate checkOut) {
+        this.checkOut = checkOut;
+    }
+
+    public Integer getNumGuests() {
+        return numGuests;
+    }
+
+    public void setNumGuests(Integer numGuests) {
+        this.numGuests = numGuests;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+}
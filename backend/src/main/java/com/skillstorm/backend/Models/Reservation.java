@@ -4,13 +4,23 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "reservations")
+@CompoundIndexes({
+    @CompoundIndex(name = "userId_checkIn", def = "{'userId': 1, 'checkIn': 1}"),
+    @CompoundIndex(name = "status_checkIn_checkOut", def = "{'status': 1, 'checkIn': 1, 'checkOut': 1}")
+})
 public class Reservation {
    
     @Id
     private String id;
+
+    @Version
+    private Long version;
     
     private String userId;
 
@@ -68,6 +78,14 @@ public class Reservation {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -0,0 +1,57 @@
+package com.skillstorm.backend.Models;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Nights [start, end) of a room held by one reservation (checkout night excluded)
+// reservationId is null for nights migrated from datesReserved that no reservation accounts for
+public class ReservedInterval {
+
+    private String reservationId;
+
+    private LocalDate start;
+
+    private LocalDate end;
+
+    // Constructors
+    public ReservedInterval() {}
+
+    public ReservedInterval(String reservationId, LocalDate start, LocalDate end) {
+        this.reservationId = reservationId;
+        this.start = start;
+        this.end = end;
+    }
+
+    // Returns true if any night of [from, to) falls inside this interval
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return start.isBefore(to) && end.isAfter(from);
+    }
+
+    // Getters and Setters
+    // Rooms are public (GET /rooms/{id}), only the reserved dates are sent, not whose reservation they belong to
+    @JsonIgnore
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+}
@@ -1,34 +1,55 @@
 package com.skillstorm.backend.Models;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "rooms")
+@CompoundIndex(name = "typeId_reservedIntervals", def = "{'typeId': 1, 'reservedIntervals.start': 1}")
 public class Room {
 
     // Fields
     @Id
     private String id;
 
+    // Optimistic locking version (also bumped by the atomic night updates in RoomRepository)
+    @Version
+    private Long version;
+
+    @Indexed(name = "roomNumber", unique = true)
     private Integer roomNumber;
 
     private String typeId;
     
     private String status;
 
-    private List<LocalDate> datesReserved;
+    // Reserved stays sorted by start, one entry per reservation (RoomRepository keeps the order on every write)
+    private List<ReservedInterval> reservedIntervals = new ArrayList<>();
+
+    // Running max end of reservedIntervals: maxEnds[i] is the latest end among intervals 0..i
+    // Not stored, rebuilt on first use after the list is set (Mongo loads the field directly, not through the setter)
+    @Transient
+    private LocalDate[] maxEnds;
+
+    @Transient
+    private List<ReservedInterval> maxEndsOf;
 
     //Constructors
     public Room() {}
 
-    public Room(Integer roomNumber, String typeId, String status, List<LocalDate> datesReserved) {
+    public Room(Integer roomNumber, String typeId, String status, List<ReservedInterval> reservedIntervals) {
         this.roomNumber = roomNumber;
         this.typeId = typeId;
         this.status = status;
-        this.datesReserved = datesReserved;
+        setReservedIntervals(reservedIntervals);
     }
 
     //Getters and Setters
@@ -40,6 +61,14 @@ public class Room {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Integer getRoomNumber() {
         return roomNumber;
     }
@@ -64,11 +93,54 @@ public class Room {
         this.status = status;
     }
 
-    public List<LocalDate> getDatesReserved() {
-        return datesReserved;
+    public List<ReservedInterval> getReservedIntervals() {
+        return reservedIntervals;
+    }
+
+    public void setReservedIntervals(List<ReservedInterval> reservedIntervals) {
+        this.reservedIntervals = reservedIntervals != null ? new ArrayList<>(reservedIntervals) : new ArrayList<>();
+        this.reservedIntervals.sort(Comparator.comparing(ReservedInterval::getStart));
+    }
+
+
+
+    //Occupancy helpers (checkOut night is excluded, room is free for new check-ins on checkout day)
+
+    // Returns true if no night between checkIn and checkOut is reserved
+    // Binary search for the intervals starting before checkOut (the rest can't reach into the stay), then the latest end
+    // among them decides: a reservation may hold more than one interval (one being moved, or one left behind by a crash
+    // mid-update), so an earlier interval can reach further than the ones after it
+    public boolean isAvailable(LocalDate checkIn, LocalDate checkOut) {
+        int low = 0;
+        int high = reservedIntervals.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (reservedIntervals.get(mid).getStart().isBefore(checkOut)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == 0 || !maxEnds()[low - 1].isAfter(checkIn);
+    }
+
+    // Returns true if the given night is reserved
+    public boolean isReservedOn(LocalDate date) {
+        return !isAvailable(date, date.plusDays(1));
     }
 
-    public void setDatesReserved(List<LocalDate> datesReserved) {
-        this.datesReserved = datesReserved;
+    private LocalDate[] maxEnds() {
+        List<ReservedInterval> intervals = reservedIntervals;
+        LocalDate[] ends = maxEnds;
+        if (ends == null || maxEndsOf != intervals || ends.length != intervals.size()) {
+            ends = new LocalDate[intervals.size()];
+            for (int i = 0; i < ends.length; i++) {
+                LocalDate end = intervals.get(i).getEnd();
+                ends[i] = i > 0 && ends[i - 1].isAfter(end) ? ends[i - 1] : end;
+            }
+            maxEnds = ends;
+            maxEndsOf = intervals;
+        }
+        return ends;
     }
 }
@@ -1,6 +1,7 @@
 package com.skillstorm.backend.Models;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
@@ -27,6 +28,9 @@ public class RoomType {
     //subject to change
     private List<String> images;
 
+    // Set by RoomTypeService on create/update, used for Last-Modified
+    private Instant updatedAt;
+
     // Constructors
     public RoomType() {}
 
@@ -105,4 +109,12 @@ public class RoomType {
     public void setImages(List<String> images) {
         this.images = images;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,89 @@
+package com.skillstorm.backend.Models;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// HTTP session persisted by MongoSessionRepository, shared by every backend node
+// Mongo drops it through the TTL index on expireAt once it has been idle for maxInactiveSeconds
+@Document(collection = "sessions")
+public class StoredSession {
+
+    @Id
+    private String id;
+
+    private Instant creationTime;
+
+    private Instant lastAccessedTime;
+
+    private long maxInactiveSeconds;
+
+    @Indexed(name = "expireAt_ttl", expireAfterSeconds = 0)
+    private Instant expireAt;
+
+    // Java-serialized attribute map (security context, OAuth2 authorization request, ...)
+    private byte[] attributes;
+
+    // Constructors
+    public StoredSession() {}
+
+    public StoredSession(String id, Instant creationTime, Instant lastAccessedTime, long maxInactiveSeconds, byte[] attributes) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveSeconds = maxInactiveSeconds;
+        this.expireAt = lastAccessedTime.plusSeconds(maxInactiveSeconds);
+        this.attributes = attributes;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getCreationTime() {
+        return creationTime;
+    }
+
+    public void setCreationTime(Instant creationTime) {
+        this.creationTime = creationTime;
+    }
+
+    public Instant getLastAccessedTime() {
+        return lastAccessedTime;
+    }
+
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+        this.lastAccessedTime = lastAccessedTime;
+    }
+
+    public long getMaxInactiveSeconds() {
+        return maxInactiveSeconds;
+    }
+
+    public void setMaxInactiveSeconds(long maxInactiveSeconds) {
+        this.maxInactiveSeconds = maxInactiveSeconds;
+    }
+
+    public Instant getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(Instant expireAt) {
+        this.expireAt = expireAt;
+    }
+
+    public byte[] getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(byte[] attributes) {
+        this.attributes = attributes;
+    }
+}
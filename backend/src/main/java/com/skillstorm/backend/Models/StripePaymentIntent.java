@@ -0,0 +1,129 @@
+package com.skillstorm.backend.Models;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Local copy of a Stripe PaymentIntent, kept up to date by the Stripe webhook (see StripeWebhookService)
+// and by the responses of our own Stripe calls, so the services can read it instead of calling Stripe
+// lastEventCreated is the Stripe timestamp (epoch seconds) of the newest state written, older events are ignored
+@Document(collection = "payment_intents")
+public class StripePaymentIntent {
+
+    @Id
+    private String id; // Stripe PaymentIntent id (pi_...)
+
+    private String status; // Stripe status: requires_capture, succeeded, canceled, ...
+
+    private Long amount;
+
+    private Long amountCapturable;
+
+    private Long amountReceived;
+
+    private String currency;
+
+    private String customerId;
+
+    private String paymentMethodId;
+
+    // Card of the charge, from the charge events
+    private String last4;
+
+    private Long lastEventCreated;
+
+    private Instant updatedAt;
+
+    // Constructors
+    public StripePaymentIntent() {}
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public Long getAmountCapturable() {
+        return amountCapturable;
+    }
+
+    public void setAmountCapturable(Long amountCapturable) {
+        this.amountCapturable = amountCapturable;
+    }
+
+    public Long getAmountReceived() {
+        return amountReceived;
+    }
+
+    public void setAmountReceived(Long amountReceived) {
+        this.amountReceived = amountReceived;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public void setPaymentMethodId(String paymentMethodId) {
+        this.paymentMethodId = paymentMethodId;
+    }
+
+    public String getLast4() {
+        return last4;
+    }
+
+    public void setLast4(String last4) {
+        this.last4 = last4;
+    }
+
+    public Long getLastEventCreated() {
+        return lastEventCreated;
+    }
+
+    public void setLastEventCreated(Long lastEventCreated) {
+        this.lastEventCreated = lastEventCreated;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -3,22 +3,32 @@ package com.skillstorm.backend.Models;
 import java.time.LocalDateTime;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "transactions")
+@CompoundIndex(name = "transactionStatus_capturedAt", def = "{'transactionStatus': 1, 'capturedAt': 1}")
 public class Transaction {
 
     @Id
     private String id;
 
+    @Version
+    private Long version;
+
     //added recently, may delete later 
+    @Indexed(name = "userId")
     private String userId;
 
     /*adding this will make lookups more optimal, but transaction - reservation are alrady linked through 
         paymentIntentId. Possibly delete later.
     */
+    @Indexed(name = "reservationId")
     private String reservationId;
 
+    @Indexed(name = "paymentIntentId", unique = true)
     private String paymentIntentId;
 
     private String transactionStatus;
@@ -29,6 +39,7 @@ public class Transaction {
 
     private String last4;
 
+    @Indexed(name = "authorizedAt")
     private LocalDateTime authorizedAt;
     
     private LocalDateTime capturedAt;
@@ -67,6 +78,14 @@ public class Transaction {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -4,8 +4,15 @@ import com.skillstorm.backend.Models.AppUser;
 
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 public interface AppUserRepository extends MongoRepository<AppUser, String> {
     Optional<AppUser> findByEmail(String email);
+
+    // One keyset page of all users (see CursorService)
+    Window<AppUser> findAllBy(ScrollPosition position, Limit limit, Sort sort);
 }
@@ -0,0 +1,13 @@
+package com.skillstorm.backend.Repositories;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.skillstorm.backend.Models.IdempotencyRecord;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+
+    // Removes the record only while it is still the one that was read, returns the number removed (0 or 1)
+    long deleteByIdAndStatusAndCreatedAt(String id, String status, Instant createdAt);
+}
@@ -0,0 +1,8 @@
+package com.skillstorm.backend.Repositories;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.skillstorm.backend.Models.OutboxEmail;
+
+public interface OutboxEmailRepository extends MongoRepository<OutboxEmail, String> {
+}
@@ -4,10 +4,17 @@ import com.skillstorm.backend.Models.Reservation;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 public interface ReservationRepository extends MongoRepository<Reservation, String> {
     
     // Find all reservations by userId
     List<Reservation> findByUserId(String userId);
+
+    // One keyset page of all reservations (see CursorService)
+    Window<Reservation> findAllBy(ScrollPosition position, Limit limit, Sort sort);
 }
@@ -1,10 +1,46 @@
 package com.skillstorm.backend.Repositories;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import com.skillstorm.backend.Models.Room;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 public interface RoomRepository extends MongoRepository<Room, String> {
     Optional<Room> findByRoomNumber(Integer roomNumber);
+
+    // Every room without its reserved intervals, for listings
+    @Query(value = "{}", fields = "{ 'roomNumber': 1, 'typeId': 1, 'status': 1 }", sort = "{ 'roomNumber': 1 }")
+    List<Room> findAllSummaries();
+
+    // One keyset page of rooms with the same projection (see CursorService)
+    @Query(fields = "{ 'roomNumber': 1, 'typeId': 1, 'status': 1 }")
+    Window<Room> findSummariesBy(ScrollPosition position, Limit limit, Sort sort);
+
+    // Every room with only the reserved intervals that overlap [from, to), filtered on the server
+    @Aggregation(pipeline = {
+        "{ '$project': { 'roomNumber': 1, 'typeId': 1, 'status': 1, 'reservedIntervals': { '$filter': { 'input': { '$ifNull': ['$reservedIntervals', []] }, 'as': 'interval', 'cond': { '$and': [ { '$lt': ['$$interval.start', ?1] }, { '$gt': ['$$interval.end', ?0] } ] } } } } }",
+        "{ '$sort': { 'roomNumber': 1 } }"
+    })
+    List<Room> findAllSummariesWithIntervalsBetween(LocalDate from, LocalDate to);
+
+    // Atomically add [start, end) for the reservation only if no interval of another reservation overlaps it
+    // Returns the number of modified documents (1 = reserved, 0 = at least one night was taken)
+    // $sort keeps the intervals ordered by start, the version is bumped so a stale full-document save of the room fails
+    @Query("{ '_id': ?0, 'reservedIntervals': { '$not': { '$elemMatch': { 'reservationId': { '$ne': ?1 }, 'start': { '$lt': ?3 }, 'end': { '$gt': ?2 } } } } }")
+    @Update("{ '$push': { 'reservedIntervals': { '$each': [ { 'reservationId': ?1, 'start': ?2, 'end': ?3 } ], '$sort': { 'start': 1 } } }, '$inc': { 'version': 1 } }")
+    long reserveIntervalIfFree(String roomId, String reservationId, LocalDate start, LocalDate end);
+
+    // Atomically remove exactly this reservation's [start, end), other bookings' nights are never touched
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$pull': { 'reservedIntervals': { 'reservationId': ?1, 'start': ?2, 'end': ?3 } }, '$inc': { 'version': 1 } }")
+    long releaseInterval(String roomId, String reservationId, LocalDate start, LocalDate end);
 }
@@ -3,6 +3,10 @@ package com.skillstorm.backend.Repositories;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import com.skillstorm.backend.Models.Transaction;
@@ -12,4 +16,7 @@ public interface TransactionRepository extends MongoRepository<Transaction, Stri
     Optional<Transaction> findByReservationId(String reservationId);
     Optional<Transaction> findByPaymentIntentId(String paymentIntentId);
     List<Transaction> findAllByUserId(String userId);
+
+    // One keyset page of all transactions (see CursorService)
+    Window<Transaction> findAllBy(ScrollPosition position, Limit limit, Sort sort);
 }
@@ -3,12 +3,16 @@ package com.skillstorm.backend.Services;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.skillstorm.backend.DTOs.CursorPage;
 import com.skillstorm.backend.Models.AppUser;
 import com.skillstorm.backend.Repositories.AppUserRepository;
 import com.stripe.exception.StripeException;
@@ -18,14 +22,22 @@ import com.stripe.model.PaymentMethod;
 @Service
 public class AppUserService implements UserDetailsService {
 
+    // Fields the user listing can be sorted by (set on every user)
+    private static final List<String> SORT_FIELDS = List.of("id", "email");
+
     private final AppUserRepository appUserRepository;
     private final StripeService stripeService;
     private final PasswordEncoder passwordEncoder;
+    private final CredentialCacheService credentialCache;
+    private final CursorService cursorService;
 
-    public AppUserService(AppUserRepository appUserRepository, StripeService stripeService, PasswordEncoder passwordEncoder) {
+    public AppUserService(AppUserRepository appUserRepository, StripeService stripeService, PasswordEncoder passwordEncoder,
+                          CredentialCacheService credentialCache, CursorService cursorService) {
         this.appUserRepository = appUserRepository;
         this.stripeService = stripeService;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
+        this.cursorService = cursorService;
     }
 
 
@@ -37,6 +49,13 @@ public class AppUserService implements UserDetailsService {
         return appUserRepository.findAll();
     }
 
+    // GET one keyset page of users, see CursorService for size, sort ("field,asc|desc") and cursor
+    public CursorPage<AppUser> getUserPage(Integer size, String sort, String cursor) {
+        Sort order = cursorService.sort(sort, SORT_FIELDS);
+        Window<AppUser> window = appUserRepository.findAllBy(cursorService.position(cursor, order), cursorService.limit(size), order);
+        return cursorService.page(window, order);
+    }
+
     //Returns user by ID, and use DTOR
     public AppUser getUserById(String id) {
         AppUser user = findUserOrThrow(id);
@@ -74,6 +93,11 @@ public class AppUserService implements UserDetailsService {
             throw new IllegalArgumentException("Missing required fields: email, password, role, firstName, lastName");
         }
 
+        // Emails are unique (users.email index), checked first so no Stripe customer is created for a duplicate
+        if (appUserRepository.findByEmail(user.getEmail()).isPresent()) {
+            throw new IllegalArgumentException("A user with email " + user.getEmail() + " already exists");
+        }
+
         // Set default preferences if not provided
         if (user.getPreferences() == null) {
             user.setPreferences(new AppUser.Preferences(false, false));
@@ -120,9 +144,23 @@ public class AppUserService implements UserDetailsService {
         AppUser user = findUserOrThrow(id);
         if (firstName != null) user.setFirstName(firstName);
         if (lastName != null) user.setLastName(lastName);
-        if (email != null) user.setEmail(email);
+        if (email != null && !email.equals(user.getEmail())) {
+            // Same check as createUser, the users.email index still rejects a concurrent change to the same email
+            if (appUserRepository.findByEmail(email).isPresent()) {
+                throw new IllegalArgumentException("A user with email " + email + " already exists");
+            }
+            user.setEmail(email);
+        }
         if (phone != null) user.setPhone(phone);
-        return appUserRepository.save(user);
+        AppUser saved;
+        try {
+            saved = appUserRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("A user with email " + email + " already exists");
+        }
+        // Cached logins hold the old user (and the old email as username)
+        credentialCache.invalidateUser(id);
+        return saved;
     }
 
     // Update user preferences (emailNotifications, display)
@@ -135,7 +173,9 @@ public class AppUserService implements UserDetailsService {
         if (emailNotifications != null) prefs.setEmailNotifications(emailNotifications);
         if (darkMode != null) prefs.setDarkMode(darkMode);
         user.setPreferences(prefs);
-        return appUserRepository.save(user);
+        AppUser saved = appUserRepository.save(user);
+        credentialCache.invalidateUser(id);
+        return saved;
     }
 
 
@@ -148,6 +188,7 @@ public class AppUserService implements UserDetailsService {
             throw new IllegalArgumentException("User with id " + id + " does not exist");
         }
         appUserRepository.deleteById(id);
+        credentialCache.invalidateUser(id);
     }
 
     public void removePaymentMethod(String userId, String paymentMethodId) throws StripeException {
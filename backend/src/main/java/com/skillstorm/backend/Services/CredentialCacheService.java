@@ -0,0 +1,102 @@
+package com.skillstorm.backend.Services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.AppUser;
+
+// Short-lived cache of successful HTTP Basic logins, so repeat requests skip the user lookup and the BCrypt check
+// Keys are an HMAC of the username and password under a random per-process key, raw passwords are never stored
+// Entries are local to this instance: AppUserService invalidates them on user changes, other instances catch up within the TTL
+@Service
+public class CredentialCacheService {
+
+    private final Duration ttl;
+    private final byte[] hmacKey = new byte[32];
+
+    // Bounded LRU, the least recently used login is evicted once maxEntries is reached
+    private final Map<String, Entry> entries;
+
+    private record Entry(Authentication authentication, String userId, Instant expiresAt) {}
+
+    public CredentialCacheService(@Value("${security.credential-cache.ttl-seconds:60}") long ttlSeconds,
+                                  @Value("${security.credential-cache.max-entries:10000}") int maxEntries) {
+        this.ttl = Duration.ofSeconds(Math.max(0, ttlSeconds));
+        new SecureRandom().nextBytes(hmacKey);
+        int capacity = Math.max(1, maxEntries);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    // Cached result of a successful login with these credentials, or null
+    public Authentication get(String username, String password) {
+        if (ttl.isZero()) {
+            return null;
+        }
+        String key = keyOf(username, password);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt().isBefore(Instant.now())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.authentication();
+    }
+
+    public void put(String username, String password, Authentication authentication) {
+        if (ttl.isZero()) {
+            return;
+        }
+        String userId = authentication.getPrincipal() instanceof AppUser user ? user.getId() : null;
+        entries.put(keyOf(username, password), new Entry(authentication, userId, Instant.now().plus(ttl)));
+    }
+
+    // Drop every cached login of a user (password, role or email changed, or user deleted)
+    public void invalidateUser(String userId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> Objects.equals(entry.userId(), userId));
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private String keyOf(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(hmacKey, "HmacSHA256"));
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
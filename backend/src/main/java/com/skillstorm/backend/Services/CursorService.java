@@ -0,0 +1,99 @@
+package com.skillstorm.backend.Services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.DTOs.CursorPage;
+
+// Keyset (cursor) pagination for the list endpoints
+// A cursor is the sort keys of the last row of a page (Extended JSON, so ObjectIds and dates keep their BSON type)
+// plus the sort it was made for, base64url encoded. The next page starts right after that row, however deep it is
+@Service
+public class CursorService {
+
+    private static final JsonWriterSettings CURSOR_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final int defaultSize;
+    private final int maxSize;
+
+    public CursorService(@Value("${pagination.default-size:50}") int defaultSize,
+                         @Value("${pagination.max-size:500}") int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.defaultSize = Math.min(Math.max(1, defaultSize), this.maxSize);
+    }
+
+    // "field" or "field,asc|desc" -> Sort on that field with id as tie-breaker, so every row has a unique position
+    // Only fields that are set on every document are allowed, keyset comparisons skip missing values
+    public Sort sort(String sort, List<String> allowedFields) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by(Sort.Direction.ASC, "id");
+        }
+        String[] parts = sort.split(",");
+        String field = parts[0].trim();
+        if (!allowedFields.contains(field)) {
+            throw new IllegalArgumentException("Cannot sort by " + field + ", allowed: " + allowedFields);
+        }
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (parts.length > 1) {
+            direction = Sort.Direction.fromOptionalString(parts[1].trim())
+                .orElseThrow(() -> new IllegalArgumentException("Sort direction must be asc or desc"));
+        }
+        Sort order = Sort.by(direction, field);
+        return "id".equals(field) ? order : order.and(Sort.by(direction, "id"));
+    }
+
+    public Limit limit(Integer size) {
+        if (size == null) {
+            return Limit.of(defaultSize);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1");
+        }
+        return Limit.of(Math.min(size, maxSize));
+    }
+
+    // Start of the listing without a cursor, otherwise right after the row the cursor was made from
+    public ScrollPosition position(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Document payload;
+        try {
+            payload = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!sort.toString().equals(payload.getString("sort")) || !(payload.get("keys") instanceof Document keys)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    public <T> CursorPage<T> page(Window<T> window, Sort sort) {
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()
+                && window.positionAt(window.size() - 1) instanceof KeysetScrollPosition last) {
+            Document payload = new Document("sort", sort.toString()).append("keys", new Document(last.getKeys()));
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.toJson(CURSOR_JSON).getBytes(StandardCharsets.UTF_8));
+        }
+        return new CursorPage<>(window.getContent(), nextCursor);
+    }
+
+    // True if any paging parameter was given, without them the list endpoints keep returning everything
+    public static boolean isPaged(Integer size, String sort, String cursor) {
+        return size != null || sort != null || cursor != null;
+    }
+}
@@ -0,0 +1,161 @@
+package com.skillstorm.backend.Services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.OutboxEmail;
+
+// Drains the email outbox in the background
+// Each batch is sent over a single SMTP connection, failed emails are retried with exponential backoff
+// and marked DEAD once they run out of attempts
+@Service
+public class EmailOutboxDispatcher {
+
+    private final MongoTemplate mongoTemplate;
+    private final JavaMailSender mailSender;
+    private final String fromEmail;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration lease;
+
+    public EmailOutboxDispatcher(MongoTemplate mongoTemplate, JavaMailSender mailSender,
+                                 @Value("${spring.mail.username}") String fromEmail,
+                                 @Value("${email.outbox.batch-size:20}") int batchSize,
+                                 @Value("${email.outbox.max-attempts:6}") int maxAttempts,
+                                 @Value("${email.outbox.backoff-seconds:30}") long backoffSeconds,
+                                 @Value("${email.outbox.lease-seconds:300}") long leaseSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.mailSender = mailSender;
+        this.fromEmail = fromEmail;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = Duration.ofSeconds(Math.max(1, backoffSeconds));
+        this.lease = Duration.ofSeconds(Math.max(1, leaseSeconds));
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        try {
+            // Keep draining while full batches come back, so a backlog doesn't wait a poll interval per batch
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == batchSize);
+        } catch (Exception e) {
+            System.err.println("Email outbox dispatch failed: " + e.getMessage());
+        }
+    }
+
+    // Claim and send one batch, returns how many emails were claimed
+    public int dispatchBatch() {
+        List<OutboxEmail> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<SimpleMailMessage, OutboxEmail> byMessage = new IdentityHashMap<>();
+        for (OutboxEmail email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(email.getTo());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            byMessage.put(message, email);
+        }
+
+        Map<Object, Exception> failed = new IdentityHashMap<>();
+        try {
+            mailSender.send(byMessage.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            // Per-message failures (a connect failure reports every message of the batch)
+            failed.putAll(e.getFailedMessages());
+            if (failed.isEmpty()) {
+                byMessage.keySet().forEach(message -> failed.put(message, e));
+            }
+        } catch (MailException e) {
+            // Authentication or preparation failure, nothing in the batch was sent
+            byMessage.keySet().forEach(message -> failed.put(message, e));
+        }
+
+        Instant now = Instant.now();
+        for (Map.Entry<SimpleMailMessage, OutboxEmail> entry : byMessage.entrySet()) {
+            Exception error = failed.get(entry.getKey());
+            if (error == null) {
+                markSent(entry.getValue(), now);
+            } else {
+                markFailed(entry.getValue(), error, now);
+            }
+        }
+        return batch.size();
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Atomically move due emails to SENDING one at a time, so several instances never claim the same email
+    private List<OutboxEmail> claimBatch() {
+        List<OutboxEmail> batch = new ArrayList<>();
+        Instant now = Instant.now();
+        Query due = Query.query(new Criteria().orOperator(
+                    Criteria.where("status").is("PENDING").and("nextAttemptAt").lte(now),
+                    Criteria.where("status").is("SENDING").and("leaseExpiresAt").lte(now)))
+                .with(Sort.by("nextAttemptAt"));
+        Update claim = new Update()
+                .set("status", "SENDING")
+                .set("leaseExpiresAt", now.plus(lease))
+                .inc("attempts", 1);
+
+        while (batch.size() < batchSize) {
+            OutboxEmail email = mongoTemplate.findAndModify(due, claim,
+                    FindAndModifyOptions.options().returnNew(true), OutboxEmail.class);
+            if (email == null) {
+                break;
+            }
+            batch.add(email);
+        }
+        return batch;
+    }
+
+    private void markSent(OutboxEmail email, Instant now) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(email.getId()).and("status").is("SENDING")),
+            new Update().set("status", "SENT").set("sentAt", now).unset("leaseExpiresAt").unset("lastError"),
+            OutboxEmail.class);
+    }
+
+    private void markFailed(OutboxEmail email, Exception error, Instant now) {
+        Update update = new Update().set("lastError", error.getMessage()).unset("leaseExpiresAt");
+        if (email.getAttempts() >= maxAttempts) {
+            update.set("status", "DEAD");
+            System.err.println("Giving up on email " + email.getId() + " to " + email.getTo()
+                    + " after " + email.getAttempts() + " attempts: " + error.getMessage());
+        } else {
+            // 30s, 1m, 2m, 4m... with the default backoff
+            Duration delay = backoff.multipliedBy(1L << Math.min(email.getAttempts() - 1, 16));
+            update.set("status", "PENDING").set("nextAttemptAt", now.plus(delay));
+        }
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(email.getId()).and("status").is("SENDING")),
+            update, OutboxEmail.class);
+    }
+}
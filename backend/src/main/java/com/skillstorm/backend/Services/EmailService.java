@@ -3,35 +3,26 @@ package com.skillstorm.backend.Services;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import java.time.Instant;
+
 import org.springframework.stereotype.Service;
 
+import com.skillstorm.backend.Models.OutboxEmail;
+import com.skillstorm.backend.Repositories.OutboxEmailRepository;
+
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    private final String fromEmail;
+    private final OutboxEmailRepository outboxEmailRepository;
 
-    public EmailService(JavaMailSender mailSender, @Value("${spring.mail.username}") String fromEmail) {
-        this.mailSender = mailSender;
-        this.fromEmail = fromEmail;
+    public EmailService(OutboxEmailRepository outboxEmailRepository) {
+        this.outboxEmailRepository = outboxEmailRepository;
     }
 
-    // Send email
+    // Queue email, EmailOutboxDispatcher sends it in the background (no SMTP in the request)
+    // Called inside the booking's Mongo transaction, a failed enqueue rolls the booking change back with it
     public void sendEmail(String to, String subject, String body) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        } catch (Exception e) {
-            // Log error but don't throw exception to avoid breaking the reservation flow
-            System.err.println("Failed to send email to " + to + ": " + e.getMessage());
-        }
+        outboxEmailRepository.save(new OutboxEmail(to, subject, body, Instant.now()));
     }
 
     // Send reservation confirmation email (when payment intent is created)
@@ -0,0 +1,113 @@
+package com.skillstorm.backend.Services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.IdempotencyRecord;
+import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Repositories.IdempotencyRecordRepository;
+import com.stripe.exception.StripeException;
+
+// Idempotency-Key support for the reservation endpoints
+// The first request with a key runs and its result is stored, replays get the stored result without running again
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final Duration inProgressTimeout;
+
+    // Work guarded by a key
+    @FunctionalInterface
+    public interface IdempotentAction {
+        Reservation run() throws StripeException;
+    }
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              @Value("${idempotency.in-progress-timeout-seconds:120}") long inProgressTimeoutSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.inProgressTimeout = Duration.ofSeconds(inProgressTimeoutSeconds);
+    }
+
+    // Run the action once per (caller, key)
+    // Throws IllegalStateException if the key is still in progress or was used for a different request
+    public Reservation execute(String key, String caller, String requestFingerprint, IdempotentAction action) throws StripeException {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+
+        String id = sha256(caller + "\n" + key);
+        String requestHash = sha256(requestFingerprint);
+
+        Optional<IdempotencyRecord> existing = claim(id, requestHash);
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (!requestHash.equals(record.getRequestHash())) {
+                throw new IllegalStateException("Idempotency-Key was already used for a different request");
+            }
+            if ("COMPLETED".equals(record.getStatus())) {
+                return record.getResponse();
+            }
+            throw new IllegalStateException("A request with this Idempotency-Key is still in progress");
+        }
+
+        try {
+            Reservation result = action.run();
+            IdempotencyRecord record = new IdempotencyRecord(id, requestHash, "COMPLETED", Instant.now());
+            record.setResponse(result);
+            idempotencyRecordRepository.save(record);
+            return result;
+        } catch (StripeException | RuntimeException e) {
+            // Failed requests are not cached, the client may retry with the same key
+            // (Stripe is only called later from the payment outbox, so a failed request placed no hold)
+            idempotencyRecordRepository.deleteById(id);
+            throw e;
+        }
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Insert an IN_PROGRESS record for the key
+    // Returns the existing record if the key was already claimed (an abandoned IN_PROGRESS record is taken over)
+    private Optional<IdempotencyRecord> claim(String id, String requestHash) {
+        try {
+            idempotencyRecordRepository.insert(new IdempotencyRecord(id, requestHash, "IN_PROGRESS", Instant.now()));
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(id);
+            if (existing.isPresent() && "IN_PROGRESS".equals(existing.get().getStatus())
+                    && existing.get().getCreatedAt().plus(inProgressTimeout).isBefore(Instant.now())) {
+                // Only the request whose delete matched the abandoned record claims the key again
+                long removed = idempotencyRecordRepository.deleteByIdAndStatusAndCreatedAt(id, "IN_PROGRESS", existing.get().getCreatedAt());
+                if (removed > 0) {
+                    return claim(id, requestHash);
+                }
+                // Another request took it over (or finished it) first
+                existing = idempotencyRecordRepository.findById(id);
+                if (existing.isEmpty()) {
+                    return claim(id, requestHash);
+                }
+            }
+            return existing;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
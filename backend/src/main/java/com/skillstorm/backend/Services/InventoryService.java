@@ -0,0 +1,248 @@
+package com.skillstorm.backend.Services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.ReservedInterval;
+import com.skillstorm.backend.Models.Room;
+import com.skillstorm.backend.Repositories.RoomRepository;
+
+// In-memory index of reserved nights per room, grouped by typeId
+// Availability searches are answered from here without touching Mongo, every room write goes through refreshRoom/removeRoom
+@Service
+public class InventoryService {
+
+    private final RoomRepository roomRepository;
+
+    // Current index, null until the first load() succeeds; load() swaps in a complete new one
+    private volatile Index index;
+
+    // Guards load(), a lock rather than synchronized so a virtual thread waiting on Mongo doesn't pin its carrier
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    // Immutable per-room entry: intervals maps the first reserved night to the night after the last one (half-open, merged)
+    private record RoomEntry(Room room, NavigableMap<LocalDate, LocalDate> intervals) {}
+
+    // rooms: roomId -> snapshot of the room and its reserved intervals, roomIdsByType: typeId -> roomIds of that type
+    private record Index(Map<String, RoomEntry> rooms, Map<String, Set<String>> roomIdsByType) {
+
+        Index() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    public InventoryService(RoomRepository roomRepository) {
+        this.roomRepository = roomRepository;
+    }
+
+
+
+//LOAD METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Build the index once the application is up (after RoomIntervalMigrationService converted legacy rooms at startup)
+    // If Mongo is unreachable, searches keep going to the database until load() succeeds
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            load();
+        } catch (Exception e) {
+            System.err.println("Failed to load inventory index: " + e.getMessage());
+        }
+    }
+
+    // (Re)build the whole index from the rooms collection
+    // Searches keep using the previous index until the new one is complete
+    public void load() {
+        loadLock.lock();
+        try {
+            Index loading = new Index();
+            for (Room room : roomRepository.findAll()) {
+                put(loading, copyOf(room));
+            }
+            // Keep rooms refreshed on the old index while findAll ran, if they are newer than what it read
+            Index previous = index;
+            if (previous != null) {
+                for (RoomEntry entry : previous.rooms().values()) {
+                    if (loading.rooms().containsKey(entry.room().getId())) {
+                        put(loading, entry.room());
+                    }
+                }
+            }
+            index = loading;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+
+
+//GET METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // GET available rooms for a stay [checkIn, checkOut) and optional typeId
+    public List<Room> findAvailableRooms(LocalDate checkIn, LocalDate checkOut, String typeId) {
+        List<Room> available = new ArrayList<>();
+        for (RoomEntry entry : candidates(typeId)) {
+            if (isFree(entry.intervals(), checkIn, checkOut)) {
+                available.add(entry.room());
+            }
+        }
+        available.sort(Comparator.comparing(Room::getRoomNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+        return available;
+    }
+
+    // GET rooms that have none of the given nights reserved and optional typeId
+    public List<Room> findAvailableRooms(List<LocalDate> nights, String typeId) {
+        List<Room> available = new ArrayList<>();
+        for (RoomEntry entry : candidates(typeId)) {
+            boolean free = true;
+            for (LocalDate night : nights) {
+                if (!isFree(entry.intervals(), night, night.plusDays(1))) {
+                    free = false;
+                    break;
+                }
+            }
+            if (free) {
+                available.add(entry.room());
+            }
+        }
+        available.sort(Comparator.comparing(Room::getRoomNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+        return available;
+    }
+
+
+
+//UPDATE METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Replace the indexed copy of a room after it has been saved
+    // Refreshes can arrive out of order (afterCommit hooks on different threads), the higher version wins
+    public void refreshRoom(Room room) {
+        Index current = index;
+        if (current == null || room == null || room.getId() == null) {
+            return;
+        }
+        put(current, copyOf(room));
+    }
+
+    // Drop a deleted room from the index
+    public void removeRoom(String roomId) {
+        Index current = index;
+        if (current == null) {
+            return;
+        }
+        RoomEntry previous = current.rooms().remove(roomId);
+        if (previous != null && previous.room().getTypeId() != null) {
+            Set<String> type = current.roomIdsByType().get(previous.room().getTypeId());
+            if (type != null) {
+                type.remove(roomId);
+            }
+        }
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private List<RoomEntry> candidates(String typeId) {
+        Index current = index;
+        if (current == null) {
+            load();
+            current = index;
+        }
+        if (typeId == null || typeId.isEmpty()) {
+            return new ArrayList<>(current.rooms().values());
+        }
+        List<RoomEntry> entries = new ArrayList<>();
+        for (String roomId : current.roomIdsByType().getOrDefault(typeId, Collections.emptySet())) {
+            RoomEntry entry = current.rooms().get(roomId);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    // Index a copied room unless the entry already holds a newer version of it
+    private static void put(Index index, Room copy) {
+        RoomEntry[] replaced = new RoomEntry[1];
+        RoomEntry entry = index.rooms().compute(copy.getId(), (roomId, existing) -> {
+            if (existing != null && isNewer(existing.room(), copy)) {
+                return existing;
+            }
+            replaced[0] = existing;
+            return new RoomEntry(copy, buildIntervals(copy.getReservedIntervals()));
+        });
+        if (entry.room() != copy) {
+            return;
+        }
+
+        RoomEntry previous = replaced[0];
+        if (previous != null && previous.room().getTypeId() != null
+                && !previous.room().getTypeId().equals(copy.getTypeId())) {
+            Set<String> oldType = index.roomIdsByType().get(previous.room().getTypeId());
+            if (oldType != null) {
+                oldType.remove(copy.getId());
+            }
+        }
+        if (copy.getTypeId() != null) {
+            index.roomIdsByType().computeIfAbsent(copy.getTypeId(), key -> ConcurrentHashMap.newKeySet()).add(copy.getId());
+        }
+    }
+
+    private static boolean isNewer(Room indexed, Room incoming) {
+        return indexed.getVersion() != null && incoming.getVersion() != null && indexed.getVersion() > incoming.getVersion();
+    }
+
+    // The only interval that can overlap [checkIn, checkOut) is the last one starting before checkOut
+    private static boolean isFree(NavigableMap<LocalDate, LocalDate> intervals, LocalDate checkIn, LocalDate checkOut) {
+        Map.Entry<LocalDate, LocalDate> candidate = intervals.lowerEntry(checkOut);
+        return candidate == null || !candidate.getValue().isAfter(checkIn);
+    }
+
+    // Merge the room's reserved intervals (sorted by start) into non-overlapping half-open [start, end) intervals
+    private static NavigableMap<LocalDate, LocalDate> buildIntervals(List<ReservedInterval> reservedIntervals) {
+        NavigableMap<LocalDate, LocalDate> intervals = new TreeMap<>();
+        LocalDate start = null;
+        LocalDate end = null;
+        for (ReservedInterval interval : reservedIntervals) {
+            if (start != null && interval.getStart().isAfter(end)) {
+                intervals.put(start, end);
+                start = null;
+            }
+            if (start == null) {
+                start = interval.getStart();
+                end = interval.getEnd();
+            } else if (interval.getEnd().isAfter(end)) {
+                end = interval.getEnd();
+            }
+        }
+        if (start != null) {
+            intervals.put(start, end);
+        }
+        return intervals;
+    }
+
+    // Callers keep mutating their Room instance, so the index holds its own copy (with the intervals sorted by start)
+    private static Room copyOf(Room room) {
+        Room copy = new Room(room.getRoomNumber(), room.getTypeId(), room.getStatus(), room.getReservedIntervals());
+        copy.setId(room.getId());
+        copy.setVersion(room.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+package com.skillstorm.backend.Services;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mongodb.MongoException;
+
+// Runs a group of MongoDB writes as one multi-document transaction (all or nothing, committed in one round trip)
+// Repository and MongoTemplate calls made inside the action join the transaction automatically
+// The whole action is run again on a version conflict or a transient transaction error, so it must re-read what it modifies
+// and must not call anything outside MongoDB (Stripe, ...)
+// A commit whose outcome is unknown (e.g. the connection dropped) only has the commit retried, the transaction may
+// already be committed and running the action again would apply its writes twice
+// mongo.transactions.enabled=false runs the action without a transaction, for standalone servers that don't support them
+@Service
+public class MongoTransactionService {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    public MongoTransactionService(MongoDatabaseFactory databaseFactory,
+                                   @Value("${mongo.transactions.enabled:true}") boolean enabled,
+                                   @Value("${mongo.transactions.max-attempts:3}") int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.transactionTemplate = enabled ? new TransactionTemplate(new CommitRetryingTransactionManager(databaseFactory, this.maxAttempts)) : null;
+    }
+
+    // False on standalone servers, a failed action's earlier writes are then not rolled back
+    public boolean isEnabled() {
+        return transactionTemplate != null;
+    }
+
+    public <T> T run(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate != null ? transactionTemplate.execute(status -> action.get()) : action.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Version conflicts, and errors the server labels as safe to retry the whole transaction for (e.g. write conflicts)
+    private static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException) {
+                return true;
+            }
+            if (cause instanceof MongoException mongo && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Commits are idempotent on the server, so a commit with an unknown result is simply sent again
+    static class CommitRetryingTransactionManager extends MongoTransactionManager {
+
+        private final int maxAttempts;
+
+        CommitRetryingTransactionManager(MongoDatabaseFactory databaseFactory, int maxAttempts) {
+            super(databaseFactory);
+            this.maxAttempts = maxAttempts;
+        }
+
+        @Override
+        protected void doCommit(MongoTransactionObject transactionObject) throws Exception {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transactionObject.commitTransaction();
+                    return;
+                } catch (MongoException e) {
+                    if (attempt >= maxAttempts || !e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.skillstorm.backend.Services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+// Bounded retry with exponential backoff for read-modify-write flows on @Version documents
+// The action must re-read what it modifies, otherwise every retry hits the same conflict
+@Service
+public class OptimisticRetryService {
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticRetryService(@Value("${reservations.retry.max-attempts:3}") int maxAttempts,
+                                  @Value("${reservations.retry.backoff-ms:25}") long backoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+    }
+
+    // Run the action, retrying on version conflicts (the last conflict is rethrown once attempts run out)
+    public <T> T run(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    // Exponential backoff with jitter so competing writers don't retry in lockstep
+    private void sleepBeforeRetry(int attempt) {
+        long delay = backoffMillis << (attempt - 1);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a conflicting update", e);
+        }
+    }
+}
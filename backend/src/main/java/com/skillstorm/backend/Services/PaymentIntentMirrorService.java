@@ -0,0 +1,128 @@
+package com.skillstorm.backend.Services;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.StripePaymentIntent;
+import com.skillstorm.backend.Models.Transaction;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentMethod;
+import com.stripe.net.StripeResponse;
+
+// Reads and writes the local PaymentIntent mirror (payment_intents)
+// Webhook events may arrive late, twice or out of order, a write only lands if it is at least as new as the stored state
+@Service
+public class PaymentIntentMirrorService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public PaymentIntentMirrorService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+
+
+//GET METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    public Optional<StripePaymentIntent> find(String paymentIntentId) {
+        if (paymentIntentId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(mongoTemplate.findById(paymentIntentId, StripePaymentIntent.class));
+    }
+
+
+
+//PUT METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // PaymentIntent from a payment_intent.* event, created is the event's timestamp
+    public void apply(PaymentIntent paymentIntent, long created) {
+        Update update = new Update()
+                .set("status", paymentIntent.getStatus())
+                .set("amount", paymentIntent.getAmount())
+                .set("amountCapturable", paymentIntent.getAmountCapturable())
+                .set("amountReceived", paymentIntent.getAmountReceived())
+                .set("currency", paymentIntent.getCurrency())
+                .set("customerId", paymentIntent.getCustomer())
+                .set("paymentMethodId", paymentIntent.getPaymentMethod())
+                .set("lastEventCreated", created)
+                .set("updatedAt", Instant.now());
+        // Expanded on the PaymentIntents we create, events only carry the id
+        PaymentMethod paymentMethod = paymentIntent.getPaymentMethodObject();
+        if (paymentMethod != null && paymentMethod.getCard() != null) {
+            update.set("last4", paymentMethod.getCard().getLast4());
+        }
+        upsertIfNewer(paymentIntent.getId(), created, update);
+    }
+
+    // PaymentIntent returned by one of our own Stripe calls
+    // Timed by Stripe's clock like the events, so a late older event doesn't overwrite it and a later one
+    // (e.g. a cancel from the dashboard) still does, whatever our own clock says
+    public void record(PaymentIntent paymentIntent) {
+        try {
+            apply(paymentIntent, stripeTime(paymentIntent));
+        } catch (RuntimeException e) {
+            // The webhook brings the same state later
+            System.err.println("Failed to mirror payment intent " + paymentIntent.getId() + ": " + e.getMessage());
+        }
+    }
+
+    // Charge from a charge.* event, carries the card's last4 for the PaymentIntent
+    // Transactions recorded before the event arrived get the last4 filled in
+    public void applyCharge(Charge charge) {
+        String paymentIntentId = charge.getPaymentIntent();
+        if (paymentIntentId == null || charge.getPaymentMethodDetails() == null
+                || charge.getPaymentMethodDetails().getCard() == null) {
+            return;
+        }
+        String last4 = charge.getPaymentMethodDetails().getCard().getLast4();
+
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(paymentIntentId)),
+                new Update().set("last4", last4).set("updatedAt", Instant.now()), StripePaymentIntent.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("paymentIntentId").is(paymentIntentId).and("last4").is(null)),
+                new Update().set("last4", last4).inc("version", 1), Transaction.class);
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Date header of the Stripe response the PaymentIntent came with, or its created time when there is none
+    // (created is older than any event about it, so the write then only lands on a PaymentIntent no event has reached yet)
+    private static long stripeTime(PaymentIntent paymentIntent) {
+        StripeResponse response = paymentIntent.getLastResponse();
+        Instant date = null;
+        if (response != null) {
+            try {
+                date = response.date();
+            } catch (RuntimeException e) {
+                // Missing or malformed header
+            }
+        }
+        if (date != null) {
+            return date.getEpochSecond();
+        }
+        return paymentIntent.getCreated() != null ? paymentIntent.getCreated() : 0L;
+    }
+
+    // Matches only if the stored state is older (or missing), an existing newer document makes the upsert
+    // try to insert a second document with the same id, which the unique _id turns into a no-op
+    private void upsertIfNewer(String paymentIntentId, long created, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(paymentIntentId).orOperator(
+                Criteria.where("lastEventCreated").lte(created),
+                Criteria.where("lastEventCreated").exists(false)));
+        try {
+            mongoTemplate.upsert(query, update, StripePaymentIntent.class);
+        } catch (DuplicateKeyException e) {
+            // A newer event was already applied
+        }
+    }
+}
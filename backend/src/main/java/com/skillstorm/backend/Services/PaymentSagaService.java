@@ -0,0 +1,550 @@
+package com.skillstorm.backend.Services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.skillstorm.backend.Models.AppUser;
+import com.skillstorm.backend.Models.PaymentStep;
+import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Models.Room;
+import com.skillstorm.backend.Models.RoomType;
+import com.skillstorm.backend.Models.StripePaymentIntent;
+import com.skillstorm.backend.Models.Transaction;
+import com.skillstorm.backend.Repositories.AppUserRepository;
+import com.skillstorm.backend.Repositories.ReservationRepository;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+
+import jakarta.annotation.PreDestroy;
+
+// Carries out the Stripe side of bookings from the payment outbox (see PaymentStep) on a small worker pool
+// A step is claimed with a lease, its Stripe call uses the step id as idempotency key, and its result is applied
+// to the reservation and transaction in one MongoDB transaction that also marks the step DONE
+// Network, rate limit and Stripe server errors are retried with exponential backoff, anything else
+// (declined card, invalid request) or running out of attempts compensates and marks the step DEAD:
+//   AUTHORIZE   -> reservation PAYMENT_FAILED, nights released, a hold that was placed is released
+//   REAUTHORIZE -> reservation back to PENDING on its old stay and hold, new nights released, a new hold
+//               that was placed is released (a hold already raised stays raised)
+//   CAPTURE / CANCEL -> logged, the hold needs a look in the Stripe dashboard
+@Service
+public class PaymentSagaService {
+
+    private final MongoTemplate mongoTemplate;
+    private final StripeService stripeService;
+    private final ReservationRepository reservationRepository;
+    private final AppUserRepository appUserRepository;
+    private final TransactionService transactionService;
+    private final RoomService roomService;
+    private final RoomTypeService roomTypeService;
+    private final EmailService emailService;
+    private final MongoTransactionService mongoTransactions;
+    private final PaymentIntentMirrorService paymentIntentMirror;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration lease;
+
+    private final ExecutorService workers;
+    // Free workers, a step is only claimed when one can start it right away
+    private final Semaphore idleWorkers;
+
+    public PaymentSagaService(MongoTemplate mongoTemplate, StripeService stripeService,
+                              ReservationRepository reservationRepository, AppUserRepository appUserRepository,
+                              TransactionService transactionService, RoomService roomService, RoomTypeService roomTypeService,
+                              EmailService emailService, MongoTransactionService mongoTransactions,
+                              PaymentIntentMirrorService paymentIntentMirror,
+                              @Value("${payments.saga.workers:4}") int workers,
+                              @Value("${payments.saga.max-attempts:8}") int maxAttempts,
+                              @Value("${payments.saga.backoff-seconds:5}") long backoffSeconds,
+                              @Value("${payments.saga.lease-seconds:120}") long leaseSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.stripeService = stripeService;
+        this.reservationRepository = reservationRepository;
+        this.appUserRepository = appUserRepository;
+        this.transactionService = transactionService;
+        this.roomService = roomService;
+        this.roomTypeService = roomTypeService;
+        this.emailService = emailService;
+        this.mongoTransactions = mongoTransactions;
+        this.paymentIntentMirror = paymentIntentMirror;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = Duration.ofSeconds(Math.max(1, backoffSeconds));
+        this.lease = Duration.ofSeconds(Math.max(1, leaseSeconds));
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers));
+        this.idleWorkers = new Semaphore(Math.max(1, workers));
+    }
+
+    // Queue a step, call it inside the MongoTransactionService action that changes the reservation
+    // so the step exists exactly when the change does
+    public PaymentStep enqueue(PaymentStep step) {
+        PaymentStep saved = mongoTemplate.insert(step);
+        // Start it as soon as it is committed instead of waiting for the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    kick();
+                }
+            });
+        } else {
+            kick();
+        }
+        return saved;
+    }
+
+    // Also picks up steps left behind by a crashed node (expired lease) and retries that are due
+    @Scheduled(fixedDelayString = "${payments.saga.poll-interval-ms:2000}")
+    public void dispatch() {
+        while (idleWorkers.tryAcquire()) {
+            PaymentStep step;
+            try {
+                step = claimNext();
+            } catch (RuntimeException e) {
+                idleWorkers.release();
+                System.err.println("Payment outbox dispatch failed: " + e.getMessage());
+                return;
+            }
+            if (step == null) {
+                idleWorkers.release();
+                return;
+            }
+            try {
+                workers.execute(() -> {
+                    try {
+                        execute(step);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                    // Keep draining while steps are due
+                    dispatch();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the lease runs out and another node takes the step
+                idleWorkers.release();
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+
+
+//STEP HANDLERS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Runs one claimed step (package-private for the tests)
+    void execute(PaymentStep step) {
+        try {
+            switch (step.getType()) {
+                case "AUTHORIZE" -> authorize(step);
+                case "REAUTHORIZE" -> reauthorize(step);
+                case "CAPTURE" -> capture(step);
+                case "CANCEL" -> cancel(step);
+                default -> throw new IllegalArgumentException("Unknown payment step type " + step.getType());
+            }
+        } catch (LostLeaseException e) {
+            System.err.println("Payment step " + step.getId() + " was taken over by another worker");
+        } catch (StripeException e) {
+            failed(step, e, isRetryable(e));
+        } catch (IllegalArgumentException e) {
+            failed(step, e, false);
+        } catch (RuntimeException e) {
+            // MongoDB error while applying the result, the Stripe call is repeated with the same idempotency key
+            failed(step, e, true);
+        }
+    }
+
+    // Place the hold for a new reservation, then record the transaction and confirm the booking
+    private void authorize(PaymentStep step) throws StripeException {
+        Reservation reservation = findReservation(step.getReservationId()).orElse(null);
+        if (reservation == null) {
+            finish(step, "DONE", "Reservation no longer exists");
+            return;
+        }
+        // Everything that can fail for good is looked up before the hold is placed
+        AppUser user = findUser(reservation.getUserId());
+        Room room = roomService.findRoomById(reservation.getRoomId());
+        RoomType roomType = roomTypeService.findRoomTypeById(room.getTypeId());
+
+        PaymentIntent paymentIntent = stripeService.createPaymentIntent(
+                step.getAmount(),
+                "usd",
+                user.getStripeCustomerId(),
+                step.getPaymentMethodId(),
+                user.getEmail(),
+                step.getId() + ":authorize");
+        paymentIntentMirror.record(paymentIntent);
+        // Kept on the step so compensation can release the hold if applying the result never succeeds
+        holdPlaced(step, paymentIntent.getId());
+
+        String transactionId = new ObjectId().toHexString();
+
+        mongoTransactions.run(() -> {
+            Reservation current = findReservation(step.getReservationId()).orElse(null);
+            if (current == null || !"PENDING_PAYMENT".equals(current.getStatus())) {
+                // Cancelled while the hold was being placed, give it back
+                enqueue(PaymentStep.cancel(step.getReservationId(), paymentIntent.getId()));
+                finish(step, "DONE", null);
+                return null;
+            }
+
+            Transaction transaction = transactionService.newTransactionFromPaymentIntent(paymentIntent, transactionId,
+                    current.getId(), current.getUserId(), current.getFirstName(), current.getLastName());
+            transactionService.createTransaction(transaction);
+
+            current.setPaymentIntentId(paymentIntent.getId());
+            current.setTransactionId(transaction.getId());
+            current.setStatus("PENDING"); // Funds held, awaiting check-in
+            Reservation saved = reservationRepository.save(current);
+
+            emailService.sendReservationConfirmation(
+                user.getEmail(),
+                user.getFirstName(),
+                saved.getId(),
+                saved.getCheckIn(),
+                saved.getCheckOut(),
+                roomType.getName(),
+                step.getAmount().doubleValue()
+            );
+            finish(step, "DONE", null);
+            return null;
+        });
+    }
+
+    // Make the reservation's hold cover the updated stay, then switch the reservation over
+    // Same or lower amount: the hold stays as it is, check-in captures only the new amount and releases the rest
+    // (until then the guest's card stays held for the old, larger amount)
+    // Higher amount: the hold is raised in place (incremental authorization), and only if the card or account
+    // doesn't allow that is a new hold placed on the same card and the old one released afterwards
+    private void reauthorize(PaymentStep step) throws StripeException {
+        Reservation reservation = findReservation(step.getReservationId()).orElse(null);
+        if (reservation == null) {
+            finish(step, "DONE", "Reservation no longer exists");
+            return;
+        }
+        AppUser user = findUser(reservation.getUserId());
+        String holdId = step.getPaymentIntentId();
+
+        // Held amount and card of the current hold, from the mirror (Stripe is only asked if the hold was never mirrored)
+        StripePaymentIntent hold = paymentIntentMirror.find(holdId).orElse(null);
+        Long authorized = hold != null ? hold.getAmountCapturable() : null;
+        String paymentMethodId = hold != null ? hold.getPaymentMethodId() : null;
+        if (authorized == null || paymentMethodId == null) {
+            PaymentIntent current = stripeService.retrievePaymentIntent(holdId);
+            paymentIntentMirror.record(current);
+            authorized = current.getAmountCapturable();
+            paymentMethodId = current.getPaymentMethod();
+        }
+
+        // New hold, only when the current one can't be adjusted
+        // Raising it in place is only tried on a known hold placed with incremental authorization, anything else is replaced
+        PaymentIntent replacement = null;
+        if (authorized == null || step.getAmount() > authorized) {
+            boolean raised = false;
+            if (authorized != null && stripeService.isIncrementalAuthorizationEnabled()) {
+                try {
+                    paymentIntentMirror.record(stripeService.incrementAuthorization(holdId, step.getAmount(), step.getId() + ":increment"));
+                    raised = true;
+                } catch (StripeException e) {
+                    if (isRetryable(e)) {
+                        throw e;
+                    }
+                }
+            }
+            if (!raised) {
+                if (paymentMethodId == null) {
+                    throw new IllegalArgumentException("Cannot update reservation: original payment method not found");
+                }
+                replacement = stripeService.createPaymentIntent(
+                        step.getAmount(),
+                        "usd",
+                        user.getStripeCustomerId(),
+                        paymentMethodId,
+                        user.getEmail(),
+                        step.getId() + ":authorize");
+                paymentIntentMirror.record(replacement);
+                holdPlaced(step, replacement.getId());
+            }
+        }
+        PaymentIntent newHold = replacement;
+
+        mongoTransactions.run(() -> {
+            Reservation current = findReservation(step.getReservationId()).orElse(null);
+            if (current == null || !"PENDING_PAYMENT".equals(current.getStatus())) {
+                // Cancelled meanwhile, give back the new nights and the new hold (a raised hold is released by the cancel)
+                if (current != null && stayChanged(current, step)) {
+                    roomService.releaseInterval(step.getRoomId(), step.getReservationId(), step.getCheckIn(), step.getCheckOut());
+                }
+                if (newHold != null) {
+                    enqueue(PaymentStep.cancel(step.getReservationId(), newHold.getId()));
+                }
+                finish(step, "DONE", null);
+                return null;
+            }
+
+            // Release the old interval, the updated stay is held by the one claimed with the request
+            if (stayChanged(current, step)) {
+                roomService.releaseInterval(current.getRoomId(), current.getId(), current.getCheckIn(), current.getCheckOut());
+            }
+
+            // Update transaction with the new amount (and the new PaymentIntent ID if the hold was replaced)
+            String paymentIntentId = newHold != null ? newHold.getId() : holdId;
+            Transaction tx = transactionService.getTransactionByReservationId(current.getId());
+            tx.setPaymentIntentId(paymentIntentId);
+            tx.setAmount(step.getAmount());
+            if (newHold != null) {
+                tx.setTransactionStatus(newHold.getStatus());
+            }
+            Transaction transaction = transactionService.updateTransaction(tx);
+
+            current.setRoomId(step.getRoomId());
+            current.setRoomNumber(step.getRoomNumber());
+            current.setCheckIn(step.getCheckIn());
+            current.setCheckOut(step.getCheckOut());
+            current.setNumGuests(step.getNumGuests());
+            current.setTotalPrice(step.getTotalPrice());
+            current.setPaymentIntentId(paymentIntentId);
+            current.setTransactionId(transaction.getId());
+            current.setStatus("PENDING");
+            reservationRepository.save(current);
+
+            // A replaced hold is released only now that the new one is in place
+            if (newHold != null) {
+                enqueue(PaymentStep.cancel(current.getId(), holdId));
+            }
+            finish(step, "DONE", null);
+            return null;
+        });
+    }
+
+    // Capture the hold of a checked-in reservation
+    private void capture(PaymentStep step) throws StripeException {
+        // Already captured according to the mirror (e.g. the step is re-run after a crash), nothing to ask Stripe
+        StripePaymentIntent mirrored = paymentIntentMirror.find(step.getPaymentIntentId()).orElse(null);
+        long amountCaptured;
+        if (mirrored != null && "succeeded".equals(mirrored.getStatus()) && mirrored.getAmountReceived() != null) {
+            amountCaptured = mirrored.getAmountReceived();
+        } else {
+            // Capture only the reservation's amount, a hold kept through a cheaper update releases the rest
+            PaymentIntent capturedIntent = stripeService.capturePayment(step.getPaymentIntentId(), step.getAmount(),
+                    step.getId() + ":capture");
+            paymentIntentMirror.record(capturedIntent);
+            amountCaptured = capturedIntent.getAmountReceived() != null ? capturedIntent.getAmountReceived() : capturedIntent.getAmount();
+        }
+
+        Reservation reservation = findReservation(step.getReservationId()).orElse(null);
+        AppUser user = reservation != null ? findUser(reservation.getUserId()) : null;
+        Room room = reservation != null ? roomService.findRoomById(reservation.getRoomId()) : null;
+
+        mongoTransactions.run(() -> {
+            transactionService.captureTransaction(step.getPaymentIntentId());
+            if (reservation != null) {
+                // Send check-in confirmation email
+                emailService.sendCheckInConfirmation(
+                    user.getEmail(),
+                    user.getFirstName(),
+                    reservation.getId(),
+                    room.getRoomNumber().toString(),
+                    reservation.getCheckOut(),
+                    (double) amountCaptured
+                );
+            }
+            finish(step, "DONE", null);
+            return null;
+        });
+    }
+
+    // Release a hold (cancelled reservation, or the old hold of an updated one)
+    private void cancel(PaymentStep step) throws StripeException {
+        // Already released according to the mirror (expired, cancelled in the dashboard, or a re-run step)
+        boolean canceled = paymentIntentMirror.find(step.getPaymentIntentId())
+                .map(mirrored -> "canceled".equals(mirrored.getStatus()))
+                .orElse(false);
+        if (!canceled) {
+            paymentIntentMirror.record(stripeService.cancelPayment(step.getPaymentIntentId(), step.getId() + ":cancel"));
+        }
+
+        mongoTransactions.run(() -> {
+            // A hold replaced by an update or placed after the reservation was cancelled has no transaction of its own
+            if (transactionService.findTransactionByPaymentIntentId(step.getPaymentIntentId()).isPresent()) {
+                transactionService.cancelTransaction(step.getPaymentIntentId());
+            }
+            finish(step, "DONE", null);
+            return null;
+        });
+    }
+
+    // The step can't succeed, undo what the request did ahead of it
+    private void compensate(PaymentStep step, String error) {
+        mongoTransactions.run(() -> {
+            Reservation current = findReservation(step.getReservationId()).orElse(null);
+            boolean waiting = current != null && "PENDING_PAYMENT".equals(current.getStatus());
+
+            if ("AUTHORIZE".equals(step.getType())) {
+                if (waiting) {
+                    // Payment was not authorized, give the nights back
+                    roomService.releaseInterval(current.getRoomId(), current.getId(), current.getCheckIn(), current.getCheckOut());
+                    current.setStatus("PAYMENT_FAILED");
+                    reservationRepository.save(current);
+                }
+                // The hold was placed but its result never applied, release it
+                if (step.getPaymentIntentId() != null) {
+                    enqueue(PaymentStep.cancel(step.getReservationId(), step.getPaymentIntentId()));
+                }
+            } else if ("REAUTHORIZE".equals(step.getType()) && current != null) {
+                // The reservation keeps its old stay and hold, give the newly claimed nights back
+                if (stayChanged(current, step)) {
+                    roomService.releaseInterval(step.getRoomId(), step.getReservationId(), step.getCheckIn(), step.getCheckOut());
+                }
+                if (waiting) {
+                    current.setStatus("PENDING");
+                    reservationRepository.save(current);
+                }
+            }
+            if ("REAUTHORIZE".equals(step.getType()) && step.getReplacementPaymentIntentId() != null) {
+                // The new hold never replaced the old one, release it
+                enqueue(PaymentStep.cancel(step.getReservationId(), step.getReplacementPaymentIntentId()));
+            }
+            finish(step, "DEAD", error);
+            return null;
+        });
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Atomically move one due step to RUNNING, so several nodes never run the same step
+    private PaymentStep claimNext() {
+        Instant now = Instant.now();
+        Query due = Query.query(new Criteria().orOperator(
+                    Criteria.where("status").is("PENDING").and("nextAttemptAt").lte(now),
+                    Criteria.where("status").is("RUNNING").and("leaseExpiresAt").lte(now)))
+                .with(Sort.by("nextAttemptAt"));
+        Update claim = new Update()
+                .set("status", "RUNNING")
+                .set("leaseExpiresAt", now.plus(lease))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(due, claim, FindAndModifyOptions.options().returnNew(true), PaymentStep.class);
+    }
+
+    // Only the worker holding the claim may move the step on, a claim taken over after an expired lease
+    // carries a different leaseExpiresAt (throws inside a MongoDB transaction so nothing of the attempt is kept)
+    private void finish(PaymentStep step, String status, String error) {
+        Update update = new Update().set("status", status).unset("leaseExpiresAt");
+        if ("DONE".equals(status)) {
+            update.set("doneAt", Instant.now());
+        }
+        if (error != null) {
+            update.set("lastError", error);
+        }
+        if (mongoTemplate.updateFirst(owned(step), update, PaymentStep.class).getModifiedCount() == 0) {
+            throw new LostLeaseException();
+        }
+    }
+
+    // Store the PaymentIntent of a hold this step placed (AUTHORIZE: paymentIntentId, REAUTHORIZE: replacementPaymentIntentId),
+    // a re-claimed step carries it along
+    private void holdPlaced(PaymentStep step, String paymentIntentId) {
+        String field = "AUTHORIZE".equals(step.getType()) ? "paymentIntentId" : "replacementPaymentIntentId";
+        if (mongoTemplate.updateFirst(owned(step), new Update().set(field, paymentIntentId), PaymentStep.class).getMatchedCount() == 0) {
+            throw new LostLeaseException();
+        }
+        if ("AUTHORIZE".equals(step.getType())) {
+            step.setPaymentIntentId(paymentIntentId);
+        } else {
+            step.setReplacementPaymentIntentId(paymentIntentId);
+        }
+    }
+
+    private void failed(PaymentStep step, Exception error, boolean retryable) {
+        try {
+            if (retryable && step.getAttempts() < maxAttempts) {
+                // 5s, 10s, 20s, 40s... with the default backoff
+                Duration delay = backoff.multipliedBy(1L << Math.min(step.getAttempts() - 1, 16));
+                mongoTemplate.updateFirst(owned(step), new Update()
+                        .set("status", "PENDING")
+                        .set("nextAttemptAt", Instant.now().plus(delay))
+                        .set("lastError", error.getMessage())
+                        .unset("leaseExpiresAt"), PaymentStep.class);
+                return;
+            }
+            System.err.println("Giving up on " + step.getType() + " payment step " + step.getId() + " of reservation "
+                    + step.getReservationId() + " after " + step.getAttempts() + " attempt(s): " + error.getMessage());
+            compensate(step, error.getMessage());
+        } catch (LostLeaseException e) {
+            System.err.println("Payment step " + step.getId() + " was taken over by another worker");
+        } catch (RuntimeException e) {
+            // The lease runs out and the step is tried again
+            System.err.println("Failed to record the outcome of payment step " + step.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private Query owned(PaymentStep step) {
+        return Query.query(Criteria.where("_id").is(step.getId())
+                .and("status").is("RUNNING")
+                .and("leaseExpiresAt").is(step.getLeaseExpiresAt()));
+    }
+
+    // Connection problems, rate limiting and Stripe server errors, repeating the call with the same idempotency key is safe
+    private static boolean isRetryable(StripeException e) {
+        if (e instanceof ApiConnectionException || e instanceof RateLimitException) {
+            return true;
+        }
+        Integer statusCode = e.getStatusCode();
+        // 409: a request with the same idempotency key is still in flight
+        return statusCode == null || statusCode >= 500 || statusCode == 409;
+    }
+
+    private static boolean stayChanged(Reservation reservation, PaymentStep step) {
+        return !(reservation.getRoomId().equals(step.getRoomId())
+                && reservation.getCheckIn().equals(step.getCheckIn())
+                && reservation.getCheckOut().equals(step.getCheckOut()));
+    }
+
+    private Optional<Reservation> findReservation(String reservationId) {
+        return reservationRepository.findById(reservationId);
+    }
+
+    private AppUser findUser(String userId) {
+        return appUserRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+
+    // Start a free worker on whatever is due
+    private void kick() {
+        try {
+            workers.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the next node to poll picks the step up
+        }
+    }
+
+    private static class LostLeaseException extends IllegalStateException {
+        LostLeaseException() {
+            super("Payment step was claimed by another worker");
+        }
+    }
+}
@@ -1,48 +1,69 @@
 package com.skillstorm.backend.Services;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import com.skillstorm.backend.Models.DailyRevenue;
 import com.skillstorm.backend.Models.Transaction;
-import com.skillstorm.backend.Repositories.TransactionRepository;
 
+import tools.jackson.databind.ObjectMapper;
+
+// Summary and daily revenue come from the daily_revenue rollup, the export streams transactions by indexed date range
 @Service
 public class ReportService {
 
-    private final TransactionRepository transactionRepository;
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private static final List<String> EXPORT_COLUMNS = List.of("transactionId", "paymentIntentId", "reservationId",
+        "userId", "amount", "currency", "status", "authorizedAt", "capturedAt", "cancelledAt");
+
+    private final MongoTemplate mongoTemplate;
+    private final RevenueRollupService revenueRollupService;
+    private final ObjectMapper objectMapper;
 
-    public ReportService(TransactionRepository transactionRepository) {
-        this.transactionRepository = transactionRepository;
+    public ReportService(MongoTemplate mongoTemplate, RevenueRollupService revenueRollupService, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.revenueRollupService = revenueRollupService;
+        this.objectMapper = objectMapper;
     }
 
-    // Financial Summary Report
+    // Financial Summary Report (read from the daily_revenue rollup, one row per day and status)
     public Map<String, Object> getFinancialSummary(LocalDate startDate, LocalDate endDate) {
-        List<Transaction> transactions = transactionRepository.findAll().stream()
-            .filter(tx -> tx.getAuthorizedAt() != null)
-            .filter(tx -> {
-                LocalDate txDate = tx.getAuthorizedAt().toLocalDate();
-                return !txDate.isBefore(startDate) && !txDate.isAfter(endDate);
-            })
-            .toList();
-
-        long totalRevenue = transactions.stream()
-            .filter(tx -> "CAPTURED".equals(tx.getTransactionStatus()))
-            .mapToLong(Transaction::getAmount)
-            .sum();
-
-        long totalPending = transactions.stream()
-            .filter(tx -> "requires_capture".equals(tx.getTransactionStatus()))
-            .mapToLong(Transaction::getAmount)
-            .sum();
-
-        long totalCancelled = transactions.stream()
-            .filter(tx -> "CANCELLED".equals(tx.getTransactionStatus()))
-            .mapToLong(Transaction::getAmount)
-            .sum();
+        Query query = Query.query(Criteria.where("date").gte(startDate).lte(endDate));
+
+        long totalRevenue = 0, totalPending = 0, totalCancelled = 0;
+        long transactionCount = 0, capturedCount = 0, pendingCount = 0, cancelledCount = 0;
+        for (DailyRevenue row : mongoTemplate.find(query, DailyRevenue.class)) {
+            transactionCount += row.getAuthorizedCount();
+            if ("CAPTURED".equals(row.getStatus())) {
+                totalRevenue += row.getAuthorizedAmount();
+                capturedCount += row.getAuthorizedCount();
+            } else if ("requires_capture".equals(row.getStatus())) {
+                totalPending += row.getAuthorizedAmount();
+                pendingCount += row.getAuthorizedCount();
+            } else if ("CANCELLED".equals(row.getStatus())) {
+                totalCancelled += row.getAuthorizedAmount();
+                cancelledCount += row.getAuthorizedCount();
+            }
+        }
 
         return Map.of(
             "startDate", startDate.toString(),
@@ -50,53 +71,111 @@ public class ReportService {
             "totalRevenue", totalRevenue / 100.0,
             "totalPending", totalPending / 100.0,
             "totalCancelled", totalCancelled / 100.0,
-            "transactionCount", transactions.size(),
-            "capturedCount", transactions.stream().filter(tx -> "CAPTURED".equals(tx.getTransactionStatus())).count(),
-            "pendingCount", transactions.stream().filter(tx -> "requires_capture".equals(tx.getTransactionStatus())).count(),
-            "cancelledCount", transactions.stream().filter(tx -> "CANCELLED".equals(tx.getTransactionStatus())).count()
+            "transactionCount", transactionCount,
+            "capturedCount", capturedCount,
+            "pendingCount", pendingCount,
+            "cancelledCount", cancelledCount
         );
     }
 
-    public List<Map<String, Object>> exportTransactionHistory(LocalDate startDate, LocalDate endDate) {
-        return transactionRepository.findAll().stream()
-            .filter(tx -> tx.getAuthorizedAt() != null)
-            .filter(tx -> {
-                LocalDate txDate = tx.getAuthorizedAt().toLocalDate();
-                return !txDate.isBefore(startDate) && !txDate.isAfter(endDate);
-            })
-            .map(tx -> Map.<String, Object>of(
-                "transactionId", tx.getId(),
-                "paymentIntentId", tx.getPaymentIntentId(),
-                "reservationId", tx.getReservationId() != null ? tx.getReservationId() : "",
-                "userId", tx.getUserId() != null ? tx.getUserId() : "",
-                "amount", tx.getAmount() / 100.0,
-                "currency", tx.getCurrency().toUpperCase(),
-                "status", tx.getTransactionStatus(),
-                "authorizedAt", tx.getAuthorizedAt() != null ? tx.getAuthorizedAt().toString() : "",
-                "capturedAt", tx.getCapturedAt() != null ? tx.getCapturedAt().toString() : "",
-                "cancelledAt", tx.getCancelledAt() != null ? tx.getCancelledAt().toString() : ""
-            ))
-            .collect(Collectors.toList());
+    // Write the transactions of a date range to out as json (one array), ndjson or csv
+    // Rows are read from a Mongo cursor in batches and written as they arrive, so memory stays flat for any range
+    public void writeTransactionHistory(LocalDate startDate, LocalDate endDate, String format, OutputStream out) throws IOException {
+        Query query = Query.query(inDateRange("authorizedAt", startDate, endDate))
+            .with(Sort.by("authorizedAt"))
+            .cursorBatchSize(EXPORT_BATCH_SIZE);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<Transaction> transactions = mongoTemplate.stream(query, Transaction.class)) {
+            switch (format) {
+                case "csv" -> {
+                    writer.write(String.join(",", EXPORT_COLUMNS) + "\r\n");
+                    writer.flush(); // header goes out before the first batch is read
+                    for (Transaction tx : (Iterable<Transaction>) transactions::iterator) {
+                        List<String> cells = new ArrayList<>();
+                        for (Object value : exportRow(tx).values()) {
+                            cells.add(csvCell(value));
+                        }
+                        writer.write(String.join(",", cells) + "\r\n");
+                    }
+                }
+                case "ndjson" -> {
+                    for (Transaction tx : (Iterable<Transaction>) transactions::iterator) {
+                        writer.write(objectMapper.writeValueAsString(exportRow(tx)) + "\n");
+                    }
+                }
+                case "json" -> {
+                    writer.write("[");
+                    writer.flush();
+                    boolean first = true;
+                    for (Transaction tx : (Iterable<Transaction>) transactions::iterator) {
+                        if (!first) {
+                            writer.write(",");
+                        }
+                        writer.write(objectMapper.writeValueAsString(exportRow(tx)));
+                        first = false;
+                    }
+                    writer.write("]");
+                }
+                default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+            }
+        }
+        writer.flush();
     }
 
     public List<Map<String, Object>> getDailyRevenue(LocalDate startDate, LocalDate endDate) {
-        return transactionRepository.findAll().stream()
-            .filter(tx -> "CAPTURED".equals(tx.getTransactionStatus()))
-            .filter(tx -> tx.getCapturedAt() != null)
-            .filter(tx -> {
-                LocalDate txDate = tx.getCapturedAt().toLocalDate();
-                return !txDate.isBefore(startDate) && !txDate.isAfter(endDate);
-            })
-            .collect(Collectors.groupingBy(
-                tx -> tx.getCapturedAt().toLocalDate().toString(),
-                Collectors.summingLong(Transaction::getAmount)
-            ))
-            .entrySet().stream()
-            .map(entry -> Map.<String, Object>of(
-                "date", entry.getKey(),
-                "revenue", entry.getValue() / 100.0
+        Query query = Query.query(Criteria.where("status").is("CAPTURED")
+                .and("date").gte(startDate).lte(endDate)
+                .and("capturedCount").gt(0))
+            .with(Sort.by("date"));
+
+        return mongoTemplate.find(query, DailyRevenue.class).stream()
+            .map(row -> Map.<String, Object>of(
+                "date", row.getDate().toString(),
+                "revenue", row.getCapturedAmount() / 100.0
             ))
-            .sorted((a, b) -> ((String)a.get("date")).compareTo((String)b.get("date")))
             .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    // Recompute daily_revenue from the transactions collection
+    public int rebuildDailyRevenue() {
+        return revenueRollupService.rebuild();
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // One export row, in EXPORT_COLUMNS order
+    private static Map<String, Object> exportRow(Transaction tx) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("transactionId", tx.getId());
+        row.put("paymentIntentId", tx.getPaymentIntentId());
+        row.put("reservationId", tx.getReservationId() != null ? tx.getReservationId() : "");
+        row.put("userId", tx.getUserId() != null ? tx.getUserId() : "");
+        row.put("amount", tx.getAmount() != null ? tx.getAmount() / 100.0 : 0.0);
+        row.put("currency", tx.getCurrency() != null ? tx.getCurrency().toUpperCase() : "");
+        row.put("status", tx.getTransactionStatus());
+        row.put("authorizedAt", tx.getAuthorizedAt() != null ? tx.getAuthorizedAt().toString() : "");
+        row.put("capturedAt", tx.getCapturedAt() != null ? tx.getCapturedAt().toString() : "");
+        row.put("cancelledAt", tx.getCancelledAt() != null ? tx.getCancelledAt().toString() : "");
+        return row;
+    }
+
+    // RFC 4180 quoting: cells with a comma, quote or line break are quoted and inner quotes doubled
+    private static String csvCell(Object value) {
+        String text = value != null ? value.toString() : "";
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+
+    // [startDate 00:00, endDate + 1 day 00:00), i.e. both dates inclusive
+    private static Criteria inDateRange(String field, LocalDate startDate, LocalDate endDate) {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        return Criteria.where(field).gte(from).lt(to);
+    }
+}
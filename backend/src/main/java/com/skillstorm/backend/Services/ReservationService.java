@@ -1,46 +1,57 @@
 package com.skillstorm.backend.Services;
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
 import com.skillstorm.backend.DTOs.CreateReservationRequest;
+import com.skillstorm.backend.DTOs.CursorPage;
 import com.skillstorm.backend.DTOs.UpdateReservationRequest;
 import com.skillstorm.backend.Models.AppUser;
+import com.skillstorm.backend.Models.PaymentStep;
 import com.skillstorm.backend.Models.Reservation;
 import com.skillstorm.backend.Models.Room;
-import com.skillstorm.backend.Models.RoomType;
-import com.skillstorm.backend.Models.Transaction;
 import com.skillstorm.backend.Repositories.AppUserRepository;
 import com.skillstorm.backend.Repositories.ReservationRepository;
 import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
 
 @Service
 public class ReservationService {
 
+    // Fields the reservation listing can be sorted by (set on every reservation)
+    private static final List<String> SORT_FIELDS = List.of("id", "checkIn");
+
     private final ReservationRepository reservationRepository;
-    private final StripeService stripeService;
     private final AppUserRepository appUserRepository;
-    private final TransactionService transactionService;
     private final RoomService roomService;
     private final EmailService emailService;
-    private final RoomTypeService roomTypeService;
-
-    public ReservationService(ReservationRepository reservationRepository, StripeService stripeService,
-                              AppUserRepository appUserRepository, TransactionService transactionService,
-                              RoomService roomService, EmailService emailService, RoomTypeService roomTypeService) {
+    private final RoomLockService roomLockService;
+    private final OptimisticRetryService optimisticRetry;
+    private final CursorService cursorService;
+    private final MongoTransactionService mongoTransactions;
+    private final PaymentSagaService paymentSaga;
+
+    public ReservationService(ReservationRepository reservationRepository, AppUserRepository appUserRepository,
+                              RoomService roomService, EmailService emailService,
+                              RoomLockService roomLockService, OptimisticRetryService optimisticRetry,
+                              CursorService cursorService, MongoTransactionService mongoTransactions,
+                              PaymentSagaService paymentSaga) {
         this.reservationRepository = reservationRepository;
-        this.stripeService = stripeService;
         this.appUserRepository = appUserRepository;
-        this.transactionService = transactionService;
         this.roomService = roomService;
         this.emailService = emailService;
-        this.roomTypeService = roomTypeService;
+        this.roomLockService = roomLockService;
+        this.optimisticRetry = optimisticRetry;
+        this.cursorService = cursorService;
+        this.mongoTransactions = mongoTransactions;
+        this.paymentSaga = paymentSaga;
     }
 
 
@@ -52,6 +63,13 @@ public class ReservationService {
         return reservationRepository.findAll();
     }
 
+    // GET one keyset page of reservations, see CursorService for size, sort ("field,asc|desc") and cursor
+    public CursorPage<Reservation> getReservationPage(Integer size, String sort, String cursor) {
+        Sort order = cursorService.sort(sort, SORT_FIELDS);
+        Window<Reservation> window = reservationRepository.findAllBy(cursorService.position(cursor, order), cursorService.limit(size), order);
+        return cursorService.page(window, order);
+    }
+
     // Get reservations by userId
     public List<Reservation> getReservationsByUserId(String userId) {
         return reservationRepository.findByUserId(userId);
@@ -70,8 +88,16 @@ public class ReservationService {
 
 //POST METHODS////////////////////////////////////////////////////////////////////////////////////////////
 
-    // Create reservation with payment authorization (holds funds)
+    // Create reservation, the hold is placed in the background
+    // Returns right away with status PENDING_PAYMENT, PaymentSagaService moves it to PENDING once the funds are held
+    // (or to PAYMENT_FAILED, giving the nights back), poll GET /reservations/{id} for the outcome
+    // Runs under the room's lock so bookings of the same room are serialized on this node
     public Reservation createReservation(CreateReservationRequest request) throws StripeException {
+        return roomLockService.withRoomLocks(Arrays.asList(request.roomId()),
+                () -> createReservationLocked(request));
+    }
+
+    private Reservation createReservationLocked(CreateReservationRequest request) {
         // Get user's Stripe customer ID
         Optional<AppUser> userOpt = appUserRepository.findById(request.userId());
 
@@ -80,27 +106,19 @@ public class ReservationService {
             throw new IllegalArgumentException("User not found");
         }
 
-        AppUser user = userOpt.get();
-
         //Check if date order is valid
         if (request.checkIn().isAfter(request.checkOut())) {
             throw new IllegalArgumentException("Check-in date must be before check-out date");
         }
 
         //Check if the given room that we are attempting to reserve is available
-        // Room does not have any date between the check-in and check-out date in datesReserved
+        // No reserved interval of the room overlaps the stay
         Room room = roomService.findRoomById(request.roomId());
-        List<LocalDate> datesReserved = room.getDatesReserved();
 
-        // Check if any date in the reservation range is already reserved
+        // Binary search over the room's sorted intervals
         // Note: checkOut date is excluded (room is available for new check-ins on checkout day)
-        //Could be made more optimal in real-world application, but fine for our purposes
-        LocalDate date = request.checkIn();
-        while (date.isBefore(request.checkOut())) {
-            if (datesReserved != null && datesReserved.contains(date)) {
-                throw new IllegalArgumentException("Room is not available for the selected dates");
-            }
-            date = date.plusDays(1);
+        if (!room.isAvailable(request.checkIn(), request.checkOut())) {
+            throw new IllegalArgumentException("Room is not available for the selected dates");
         }
 
         //Check if numGuests is valid
@@ -124,96 +142,56 @@ public class ReservationService {
         reservation.setFirstName(request.firstName());
         reservation.setLastName(request.lastName());
         reservation.setRoomNumber(request.roomNumber());
+        reservation.setStatus("PENDING_PAYMENT"); // Hold not placed yet
+
+        // The id is chosen up front so the room's interval can name the reservation that owns it
+        reservation.setId(new ObjectId().toHexString());
 
         // Convert price to cents for Stripe
         Long amountInCents = request.totalPrice().multiply(BigDecimal.valueOf(100)).longValue();
 
-        // Create payment intent (authorizes but doesn't capture)
-        PaymentIntent paymentIntent = stripeService.createPaymentIntent(
-                amountInCents,
-                "usd",
-                user.getStripeCustomerId(),
-                request.paymentMethodId(),
-                user.getEmail());
-
-        // Set reservation details
-        reservation.setPaymentIntentId(paymentIntent.getId());
-        reservation.setStatus("PENDING"); // Funds held, awaiting check-in
-
-        //Must make a new reservation object to get the id from the reservation (MONGO DB creates an id with the save)
-        Reservation saved = reservationRepository.save(reservation);
-
-        //Create transaction record for this reservation
-        Transaction transaction = transactionService.createTransactionfromPaymentIntent(
-        paymentIntent, saved.getId(), request.userId(), request.firstName(), request.lastName());
-
-        //Link the transaction to the reservation
-        saved.setTransactionId(transaction.getId());
-        reservationRepository.save(saved);
-
-        // Update the room's datesReserved with the newly reserved dates
-        List<LocalDate> updatedDatesReserved = new ArrayList<>(datesReserved != null ? datesReserved : new ArrayList<>());
-        LocalDate reservedDate = request.checkIn();
-        while (reservedDate.isBefore(request.checkOut())) {
-            updatedDatesReserved.add(reservedDate);
-            reservedDate = reservedDate.plusDays(1);
+        // Room nights, reservation and its AUTHORIZE step are committed together, so a crash or failed commit
+        // never leaves nights claimed on the room without a reservation behind them
+        try {
+            return mongoTransactions.run(() -> {
+                // Atomically claim the nights on the room before any payment is made
+                // Only one of two concurrent bookings for the same nights can succeed here (the other one's transaction
+                // hits a write conflict, is run again and then finds the nights taken)
+                if (!roomService.reserveInterval(room.getId(), reservation.getId(), request.checkIn(), request.checkOut())) {
+                    throw new IllegalArgumentException("Room is not available for the selected dates");
+                }
+                // Unsaved version, so a retried attempt inserts again instead of updating
+                reservation.setVersion(null);
+                Reservation saved = reservationRepository.save(reservation);
+                paymentSaga.enqueue(PaymentStep.authorize(saved.getId(), amountInCents, request.paymentMethodId()));
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // Rolled back with the transaction, without transactions (mongo.transactions.enabled=false) give the nights back
+            if (!mongoTransactions.isEnabled() && !reservationRepository.existsById(reservation.getId())) {
+                roomService.releaseInterval(room.getId(), reservation.getId(), request.checkIn(), request.checkOut());
+            }
+            throw e;
         }
-        room.setDatesReserved(updatedDatesReserved);
-        roomService.saveRoom(room);
-
-        // Send reservation confirmation email
-        RoomType roomType = roomTypeService.findRoomTypeById(room.getTypeId());
-        emailService.sendReservationConfirmation(
-            user.getEmail(),
-            user.getFirstName(),
-            saved.getId(),
-            saved.getCheckIn(),
-            saved.getCheckOut(),
-            roomType.getName(),
-            amountInCents.doubleValue()
-        );
-
-        return saved;
     }
 
 //PUT METHODS////////////////////////////////////////////////////////////////////////////////////////////
 
-    // Check-in: capture funds from payment intent
-    public Reservation checkIn(String reservationId) throws StripeException {
+    // Check-in: the reservation is CONFIRMED right away, the held funds are captured in the background
+    public Reservation checkIn(String reservationId) {
         Reservation reservation = findReservationOrThrow(reservationId);
 
         if (!"PENDING".equals(reservation.getStatus())) {
             throw new IllegalArgumentException("Reservation is not pending");
         }
 
-        // Get user and room information for email
-        Optional<AppUser> userOpt = appUserRepository.findById(reservation.getUserId());
-        if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
-        }
-        AppUser user = userOpt.get();
-        Room room = roomService.findRoomById(reservation.getRoomId());
-
-        // Capture funds
-        PaymentIntent capturedIntent = stripeService.capturePayment(reservation.getPaymentIntentId());
-        reservation.setStatus("CONFIRMED");
-
-        // Update the corresponding transaction to CAPTURED
-        transactionService.captureTransaction(reservation.getPaymentIntentId());
-
-        Reservation saved = reservationRepository.save(reservation);
-
-        // Send check-in confirmation email
-        emailService.sendCheckInConfirmation(
-            user.getEmail(),
-            user.getFirstName(),
-            saved.getId(),
-            room.getRoomNumber().toString(),
-            saved.getCheckOut(),
-            capturedIntent.getAmount().doubleValue()
-        );
-
-        return saved;
+        // Reservation status and its CAPTURE step are committed together
+        return mongoTransactions.run(() -> {
+            Reservation saved = changeInTransaction(reservationId, "PENDING", r -> r.setStatus("CONFIRMED"));
+            Long amountInCents = saved.getTotalPrice().multiply(BigDecimal.valueOf(100)).longValue();
+            paymentSaga.enqueue(PaymentStep.capture(saved.getId(), saved.getPaymentIntentId(), amountInCents));
+            return saved;
+        });
     }
 
     //Check-out: updates the reservation to completed status
@@ -222,15 +200,33 @@ public class ReservationService {
         if (!"CONFIRMED".equals(reservation.getStatus())) {
             throw new IllegalArgumentException("Reservation is not confirmed");
         }
-        reservation.setStatus("COMPLETED");
-        return reservationRepository.save(reservation);
+        return saveWithRetry(reservation, "CONFIRMED", r -> r.setStatus("COMPLETED"));
     }
         
-    // Cancel reservation: release held funds
+    // Cancel reservation: the room is released right away, the held funds in the background
+    // A reservation still waiting for its hold can be cancelled too, the hold is released once it has been placed
+    // Runs under the room's lock (the reservation is re-read once the lock is held, and locked again if it moved rooms meanwhile)
     public Reservation cancelReservation(String reservationId) throws StripeException {
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            String lockedRoomId = findReservationOrThrow(reservationId).getRoomId();
+            Reservation cancelled = roomLockService.withRoomLocks(Arrays.asList(lockedRoomId),
+                    () -> cancelReservationLocked(reservationId, lockedRoomId));
+            if (cancelled != null) {
+                return cancelled;
+            }
+        }
+        throw new IllegalArgumentException("Reservation was modified concurrently, try again");
+    }
+
+    // Returns null if the reservation is no longer in the room that was locked
+    private Reservation cancelReservationLocked(String reservationId, String lockedRoomId) {
         Reservation reservation = findReservationOrThrow(reservationId);
+        if (!reservation.getRoomId().equals(lockedRoomId)) {
+            return null;
+        }
+        String status = reservation.getStatus();
 
-        if (!"PENDING".equals(reservation.getStatus())) {
+        if (!"PENDING".equals(status) && !"PENDING_PAYMENT".equals(status)) {
             throw new IllegalArgumentException("Reservation is not pending");
         }
 
@@ -241,42 +237,57 @@ public class ReservationService {
         }
         AppUser user = userOpt.get();
 
-        // Cancel payment intent
-        stripeService.cancelPayment(reservation.getPaymentIntentId());
-        reservation.setStatus("CANCELLED");
+        // Room interval, reservation status, CANCEL step and email are committed together
+        return mongoTransactions.run(() -> {
+            // Release the room dates by atomically removing this reservation's interval from the room
+            roomService.releaseInterval(reservation.getRoomId(), reservation.getId(),
+                    reservation.getCheckIn(), reservation.getCheckOut());
 
-        //Cancel the corresponding transaction
-        transactionService.cancelTransaction(reservation.getPaymentIntentId());
+            Reservation saved = changeInTransaction(reservationId, status, r -> r.setStatus("CANCELLED"));
 
-        // Release the room dates by removing them from the room's datesReserved list
-        Room room = roomService.findRoomById(reservation.getRoomId());
-        List<LocalDate> datesReserved = new ArrayList<>(room.getDatesReserved() != null ? room.getDatesReserved() : new ArrayList<>());
-
-        // Remove reservation dates from the room's reserved dates
-        LocalDate date = reservation.getCheckIn();
-        while (date.isBefore(reservation.getCheckOut())) {
-            datesReserved.remove(date);
-            date = date.plusDays(1);
-        }
-
-        room.setDatesReserved(datesReserved);
-        roomService.saveRoom(room);
-
-        Reservation saved = reservationRepository.save(reservation);
-
-        // Send cancellation confirmation email
-        emailService.sendCancellationConfirmation(
-            user.getEmail(),
-            user.getFirstName(),
-            saved.getId()
-        );
+            // No hold yet on a new reservation still waiting for its AUTHORIZE step
+            if (saved.getPaymentIntentId() != null) {
+                paymentSaga.enqueue(PaymentStep.cancel(saved.getId(), saved.getPaymentIntentId()));
+            }
 
-        return saved;
+            // Send cancellation confirmation email
+            emailService.sendCancellationConfirmation(
+                user.getEmail(),
+                user.getFirstName(),
+                saved.getId()
+            );
+            return saved;
+        });
     }
 
     //Update reservation (Required fields: checkIn, checkOut, numGuests, totalPrice)
+    // Returns right away with status PENDING_PAYMENT and the old stay, the new stay is applied once the hold covers it
+    // (kept for a lower amount, raised in place or replaced for a higher one, see PaymentSagaService.reauthorize)
+    // If that fails the reservation goes back to PENDING on its old stay
+    // Runs under the locks of both the old and the new room (acquired in a fixed order, so no deadlock)
+    // The rooms to lock come from a read taken before locking, if the reservation moved to another room (or the room
+    // number now points at another room) in between, the locks are taken again for the rooms it has now
     public Reservation updateReservation(String id, UpdateReservationRequest request) throws StripeException {
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            String lockedRoomId = findReservationOrThrow(id).getRoomId();
+            String newRoomId = request.roomNumber() != null
+                    ? roomService.findRoomByRoomNumber(request.roomNumber()).getId()
+                    : null;
+            Reservation updated = roomLockService.withRoomLocks(Arrays.asList(lockedRoomId, newRoomId),
+                    () -> updateReservationLocked(id, request, lockedRoomId, newRoomId));
+            if (updated != null) {
+                return updated;
+            }
+        }
+        throw new IllegalArgumentException("Reservation was modified concurrently, try again");
+    }
+
+    // Returns null if the reservation or the requested room no longer match the rooms that were locked
+    private Reservation updateReservationLocked(String id, UpdateReservationRequest request, String lockedRoomId, String lockedNewRoomId) {
         Reservation reservation = findReservationOrThrow(id);
+        if (!reservation.getRoomId().equals(lockedRoomId)) {
+            return null;
+        }
 
         if (request.checkIn().isAfter(request.checkOut())) {
             throw new IllegalArgumentException("Check-in date must be before check-out date");
@@ -301,111 +312,39 @@ public class ReservationService {
             throw new IllegalArgumentException("Room number is required");
         }
 
-        // Get the old room to release its reserved dates
-        Room oldRoom = roomService.findRoomById(reservation.getRoomId());
-
         // Get the new room (could be same as old room or a different room)
         Room newRoom = roomService.findRoomByRoomNumber(request.roomNumber());
-
-        // Remove old reservation dates from the old room
-        List<LocalDate> oldRoomDatesReserved = new ArrayList<>(oldRoom.getDatesReserved() != null ? oldRoom.getDatesReserved() : new ArrayList<>());
-        LocalDate oldDate = reservation.getCheckIn();
-        while (oldDate.isBefore(reservation.getCheckOut())) {
-            oldRoomDatesReserved.remove(oldDate);
-            oldDate = oldDate.plusDays(1);
-        }
-        oldRoom.setDatesReserved(oldRoomDatesReserved);
-
-        // If it's the same room, use the oldRoomDatesReserved (which already has old dates removed)
-        // Otherwise, get the new room's current dates
-        List<LocalDate> newRoomDatesReserved;
-        if (oldRoom.getId().equals(newRoom.getId())) {
-            newRoomDatesReserved = new ArrayList<>(oldRoomDatesReserved);
-        } else {
-            newRoomDatesReserved = new ArrayList<>(newRoom.getDatesReserved() != null ? newRoom.getDatesReserved() : new ArrayList<>());
-        }
-
-        // Verify new dates are available
-        LocalDate checkDate = request.checkIn();
-        while (checkDate.isBefore(request.checkOut())) {
-            if (newRoomDatesReserved.contains(checkDate)) {
-                throw new IllegalArgumentException("Room is not available for the selected dates");
-            }
-            checkDate = checkDate.plusDays(1);
-        }
-
-        // Add new reservation dates to the new room
-        LocalDate newDate = request.checkIn();
-        while (newDate.isBefore(request.checkOut())) {
-            if (!newRoomDatesReserved.contains(newDate)) {
-                newRoomDatesReserved.add(newDate);
-            }
-            newDate = newDate.plusDays(1);
-        }
-        newRoom.setDatesReserved(newRoomDatesReserved);
-
-        // Update reservation fields
-        reservation.setRoomId(newRoom.getId());
-        reservation.setRoomNumber(request.roomNumber());
-        reservation.setCheckIn(request.checkIn());
-        reservation.setCheckOut(request.checkOut());
-        reservation.setNumGuests(request.numGuests());
-        reservation.setTotalPrice(request.totalPrice());
-
-        //STRIPE LOGIC///
-
-        // Get user for Stripe customer ID and email
-        Optional<AppUser> userOpt = appUserRepository.findById(reservation.getUserId());
-        if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
-        }
-        AppUser user = userOpt.get();
-
-        // Cancel old PaymentIntent and create new one with updated amount
-        String oldPaymentIntentId = reservation.getPaymentIntentId();
-        PaymentIntent oldPaymentIntent = PaymentIntent.retrieve(oldPaymentIntentId);
-        String paymentMethodId = oldPaymentIntent.getPaymentMethod();
-
-        if (paymentMethodId == null) {
-            throw new IllegalArgumentException("Cannot update reservation: original payment method not found");
+        if (!newRoom.getId().equals(lockedNewRoomId)) {
+            return null;
         }
 
-        // Cancel the old PaymentIntent
-        stripeService.cancelPayment(oldPaymentIntentId);
+        // Nothing to claim if only guests or price change (the release would also remove the identical new interval)
+        boolean sameStay = reservation.getRoomId().equals(newRoom.getId())
+                && reservation.getCheckIn().equals(request.checkIn())
+                && reservation.getCheckOut().equals(request.checkOut());
 
-        // Create new PaymentIntent with updated amount
         Long amountInCents = request.totalPrice().multiply(BigDecimal.valueOf(100)).longValue();
-        PaymentIntent newPaymentIntent = stripeService.createPaymentIntent(
-                amountInCents,
-                "usd",
-                user.getStripeCustomerId(),
-                paymentMethodId,
-                user.getEmail());
-
-        // Update reservation with new PaymentIntent ID
-        reservation.setPaymentIntentId(newPaymentIntent.getId());
-
-        // Update transaction with new PaymentIntent ID and amount
-        Transaction transaction = transactionService.getTransactionByReservationId(reservation.getId());
-        transaction.setPaymentIntentId(newPaymentIntent.getId());
-        transaction.setAmount(amountInCents);
-        transaction.setTransactionStatus(newPaymentIntent.getStatus());
-        transactionService.updateTransaction(transaction);
-
-        // Update reservation with transaction ID
-        reservation.setTransactionId(transaction.getId());
-
-        // Save both rooms (handles case where old and new room are the same)
-        if (oldRoom.getId().equals(newRoom.getId())) {
-            // Same room - save once with updated dates
-            roomService.saveRoom(newRoom);
-        } else {
-            // Different rooms - save both
-            roomService.saveRoom(oldRoom);
-            roomService.saveRoom(newRoom);
-        }
 
-        return reservationRepository.save(reservation);
+        // New interval, reservation status and its REAUTHORIZE step are committed together
+        try {
+            return mongoTransactions.run(() -> {
+                // Atomically claim the new interval now, the old one is released once the new hold is placed
+                // The reservation's old interval doesn't block the new one, so the stay can shift within the same room
+                if (!sameStay && !roomService.reserveInterval(newRoom.getId(), reservation.getId(), request.checkIn(), request.checkOut())) {
+                    throw new IllegalArgumentException("Room is not available for the selected dates");
+                }
+                Reservation saved = changeInTransaction(id, "PENDING", r -> r.setStatus("PENDING_PAYMENT"));
+                paymentSaga.enqueue(PaymentStep.reauthorize(id, saved.getPaymentIntentId(), amountInCents, newRoom.getId(),
+                        request.roomNumber(), request.checkIn(), request.checkOut(), request.numGuests(), request.totalPrice()));
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // Rolled back with the transaction, without transactions (mongo.transactions.enabled=false) give the new nights back
+            if (!sameStay && !mongoTransactions.isEnabled()) {
+                roomService.releaseInterval(newRoom.getId(), reservation.getId(), request.checkIn(), request.checkOut());
+            }
+            throw e;
+        }
     }
 
 
@@ -420,4 +359,33 @@ public class ReservationService {
         return reservationOpt.get();
     }
 
+    // Re-read the reservation inside a MongoDB transaction, make sure it is still in the expected status, apply the changes and save
+    // A version conflict aborts the transaction and MongoTransactionService runs the whole unit again
+    private Reservation changeInTransaction(String reservationId, String expectedStatus, Consumer<Reservation> changes) {
+        Reservation target = findReservationOrThrow(reservationId);
+        if (!expectedStatus.equals(target.getStatus())) {
+            throw new IllegalArgumentException("Reservation was modified concurrently, status is now " + target.getStatus());
+        }
+        changes.accept(target);
+        return reservationRepository.save(target);
+    }
+
+    // Apply the changes and save
+    // On a version conflict, re-read the reservation, make sure it is still in the expected status
+    // and apply the changes again (bounded retry with backoff)
+    private Reservation saveWithRetry(Reservation reservation, String expectedStatus, Consumer<Reservation> changes) {
+        AtomicReference<Reservation> firstAttempt = new AtomicReference<>(reservation);
+        return optimisticRetry.run(() -> {
+            Reservation target = firstAttempt.getAndSet(null);
+            if (target == null) {
+                target = findReservationOrThrow(reservation.getId());
+                if (!expectedStatus.equals(target.getStatus())) {
+                    throw new IllegalArgumentException("Reservation was modified concurrently, status is now " + target.getStatus());
+                }
+            }
+            changes.accept(target);
+            return reservationRepository.save(target);
+        });
+    }
+
 }
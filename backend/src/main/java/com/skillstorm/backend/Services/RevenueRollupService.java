@@ -0,0 +1,193 @@
+package com.skillstorm.backend.Services;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.DailyRevenue;
+import com.skillstorm.backend.Models.Transaction;
+
+// Maintains the daily_revenue rollup
+// Every transaction write applies the difference between what the transaction contributed before and after,
+// so the reports read one row per day and status instead of scanning transactions
+@Service
+public class RevenueRollupService {
+
+    private final MongoTemplate mongoTemplate;
+
+    // One rebuild at a time, a lock rather than synchronized so the Mongo round trips don't pin a virtual thread's carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // What one transaction adds to the rollup
+    // authorizedDay/status pick the row for authorizedAmount/Count, capturedDay the CAPTURED row for capturedAmount/Count
+    public record Contribution(LocalDate authorizedDay, String status, long amount, LocalDate capturedDay) {
+
+        public static Contribution of(Transaction tx) {
+            if (tx == null) {
+                return null;
+            }
+            return new Contribution(
+                tx.getAuthorizedAt() != null ? tx.getAuthorizedAt().toLocalDate() : null,
+                tx.getTransactionStatus(),
+                tx.getAmount() != null ? tx.getAmount() : 0L,
+                "CAPTURED".equals(tx.getTransactionStatus()) && tx.getCapturedAt() != null
+                    ? tx.getCapturedAt().toLocalDate() : null);
+        }
+    }
+
+    // Pending $inc values for one rollup row
+    private static class Delta {
+        final LocalDate date;
+        final String status;
+        long authorizedAmount, authorizedCount, capturedAmount, capturedCount;
+
+        Delta(LocalDate date, String status) {
+            this.date = date;
+            this.status = status;
+        }
+
+        boolean isZero() {
+            return authorizedAmount == 0 && authorizedCount == 0 && capturedAmount == 0 && capturedCount == 0;
+        }
+    }
+
+    public RevenueRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+
+
+//UPDATE METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Apply a transaction change (before is null for a new transaction)
+    // Call after the transaction was saved, in the same Mongo transaction, so a failed increment rolls the save back
+    public void apply(Contribution before, Contribution after) {
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        add(deltas, before, -1);
+        add(deltas, after, 1);
+
+        for (Delta delta : deltas.values()) {
+            if (delta.isZero()) {
+                continue;
+            }
+            mongoTemplate.upsert(
+                Query.query(Criteria.where("_id").is(DailyRevenue.idOf(delta.date, delta.status))),
+                new Update()
+                    .setOnInsert("date", delta.date)
+                    .setOnInsert("status", delta.status)
+                    .inc("authorizedAmount", delta.authorizedAmount)
+                    .inc("authorizedCount", delta.authorizedCount)
+                    .inc("capturedAmount", delta.capturedAmount)
+                    .inc("capturedCount", delta.capturedCount),
+                DailyRevenue.class);
+        }
+    }
+
+    // Recompute the whole rollup from the transactions collection
+    // Increments that land while this runs can be lost, so run it when no bookings are being made
+    public int rebuild() {
+        rebuildLock.lock();
+        try {
+            Map<String, DailyRevenue> rows = new LinkedHashMap<>();
+            ZoneId zone = ZoneId.systemDefault();
+
+            TypedAggregation<Transaction> authorized = Aggregation.newAggregation(Transaction.class,
+                Aggregation.match(Criteria.where("authorizedAt").ne(null).and("transactionStatus").ne(null)),
+                Aggregation.project("amount", "transactionStatus").and(dayOf("authorizedAt", zone)).as("day"),
+                Aggregation.group("day", "transactionStatus").sum("amount").as("total").count().as("count")
+            );
+            for (Document row : mongoTemplate.aggregate(authorized, Document.class)) {
+                Document key = row.get("_id", Document.class);
+                DailyRevenue revenue = rowFor(rows, LocalDate.parse(key.getString("day")), key.getString("transactionStatus"));
+                revenue.setAuthorizedAmount(longValue(row, "total"));
+                revenue.setAuthorizedCount(longValue(row, "count"));
+            }
+
+            TypedAggregation<Transaction> captured = Aggregation.newAggregation(Transaction.class,
+                Aggregation.match(Criteria.where("transactionStatus").is("CAPTURED").and("capturedAt").ne(null)),
+                Aggregation.project("amount").and(dayOf("capturedAt", zone)).as("day"),
+                Aggregation.group("day").sum("amount").as("total").count().as("count")
+            );
+            for (Document row : mongoTemplate.aggregate(captured, Document.class)) {
+                DailyRevenue revenue = rowFor(rows, LocalDate.parse(row.getString("_id")), "CAPTURED");
+                revenue.setCapturedAmount(longValue(row, "total"));
+                revenue.setCapturedCount(longValue(row, "count"));
+            }
+
+            mongoTemplate.remove(new Query(), DailyRevenue.class);
+            mongoTemplate.insertAll(new ArrayList<>(rows.values()));
+            return rows.size();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Backfill on the first start after the rollup was introduced
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (!mongoTemplate.exists(new Query(), DailyRevenue.class)
+                    && mongoTemplate.exists(new Query(), Transaction.class)) {
+                System.err.println("daily_revenue is empty, rebuilt " + rebuild() + " rows from transactions");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to backfill daily revenue: " + e.getMessage());
+        }
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void add(Map<String, Delta> deltas, Contribution contribution, int sign) {
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.authorizedDay() != null && contribution.status() != null) {
+            Delta delta = deltaFor(deltas, contribution.authorizedDay(), contribution.status());
+            delta.authorizedAmount += sign * contribution.amount();
+            delta.authorizedCount += sign;
+        }
+        if (contribution.capturedDay() != null) {
+            Delta delta = deltaFor(deltas, contribution.capturedDay(), "CAPTURED");
+            delta.capturedAmount += sign * contribution.amount();
+            delta.capturedCount += sign;
+        }
+    }
+
+    private static Delta deltaFor(Map<String, Delta> deltas, LocalDate date, String status) {
+        return deltas.computeIfAbsent(DailyRevenue.idOf(date, status), id -> new Delta(date, status));
+    }
+
+    private static DailyRevenue rowFor(Map<String, DailyRevenue> rows, LocalDate date, String status) {
+        return rows.computeIfAbsent(DailyRevenue.idOf(date, status), id -> new DailyRevenue(date, status));
+    }
+
+    // Day in the server's zone, the same day LocalDateTime.toLocalDate() gives for the stored value
+    private static DateOperators.DateToString dayOf(String field, ZoneId zone) {
+        return DateOperators.DateToString.dateOf(field).toString("%Y-%m-%d")
+            .withTimezone(DateOperators.Timezone.valueOf(zone.getId()));
+    }
+
+    // $sum returns an int or a long depending on the size of the total
+    private static long longValue(Document row, String key) {
+        Object value = row.get(key);
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
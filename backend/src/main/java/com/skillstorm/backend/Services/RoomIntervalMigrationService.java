@@ -0,0 +1,170 @@
+package com.skillstorm.backend.Services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.skillstorm.backend.Models.ReservedInterval;
+import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Models.Room;
+
+import jakarta.annotation.PostConstruct;
+
+// Converts rooms that still store one datesReserved entry per night into reservedIntervals
+// Nights covered by a reservation of the room that isn't cancelled become that reservation's interval,
+// whatever is left is merged into runs of consecutive nights without a reservation id
+// Runs at startup (rooms.interval-migration.enabled, default true) and only touches rooms that still have datesReserved
+// It runs while the context is created, before the web server takes requests and before InventoryService loads its
+// index on ApplicationReadyEvent, so neither ever sees a room that hasn't been converted
+@Service
+public class RoomIntervalMigrationService {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    public RoomIntervalMigrationService(MongoTemplate mongoTemplate,
+                                        @Value("${rooms.interval-migration.enabled:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int migrated = migrate();
+            if (migrated > 0) {
+                System.err.println("Migrated datesReserved to reserved intervals on " + migrated + " room(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to migrate rooms to reserved intervals: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of rooms converted
+    public int migrate() {
+        String rooms = mongoTemplate.getCollectionName(Room.class);
+        List<Document> legacyRooms = mongoTemplate.find(
+            Query.query(Criteria.where("datesReserved").exists(true)), Document.class, rooms);
+        if (legacyRooms.isEmpty()) {
+            return 0;
+        }
+
+        // roomId -> reservations still holding nights on it, earliest first
+        Map<String, List<Reservation>> reservationsByRoom = new HashMap<>();
+        Query holding = Query.query(Criteria.where("status").ne("CANCELLED"));
+        holding.fields().include("roomId", "checkIn", "checkOut");
+        for (Reservation reservation : mongoTemplate.find(holding, Reservation.class)) {
+            if (reservation.getRoomId() != null && reservation.getCheckIn() != null && reservation.getCheckOut() != null) {
+                reservationsByRoom.computeIfAbsent(reservation.getRoomId(), key -> new ArrayList<>()).add(reservation);
+            }
+        }
+        reservationsByRoom.values().forEach(list -> list.sort(Comparator.comparing(Reservation::getCheckIn)));
+
+        int migrated = 0;
+        for (Document room : legacyRooms) {
+            List<ReservedInterval> intervals = toIntervals(room,
+                reservationsByRoom.getOrDefault(room.get("_id").toString(), List.of()));
+
+            Update update = new Update()
+                .set("reservedIntervals", intervals)
+                .unset("datesReserved")
+                .unset("occupancy")
+                .inc("version", 1);
+            // Matching on datesReserved keeps a second node running the same migration from writing twice
+            Query query = Query.query(Criteria.where("_id").is(room.get("_id")).and("datesReserved").exists(true));
+            if (mongoTemplate.updateFirst(query, update, Room.class).getModifiedCount() == 1) {
+                migrated++;
+            }
+        }
+
+        // Replaced by typeId_reservedIntervals
+        try {
+            mongoTemplate.indexOps(Room.class).dropIndex("typeId_datesReserved");
+        } catch (Exception e) {
+            // Never created or already dropped
+        }
+        return migrated;
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    private List<ReservedInterval> toIntervals(Document room, List<Reservation> reservations) {
+        TreeSet<LocalDate> nights = new TreeSet<>();
+        List<?> stored = room.getList("datesReserved", Object.class);
+        if (stored != null) {
+            for (Object value : stored) {
+                LocalDate night = value instanceof Date date
+                    ? mongoTemplate.getConverter().getConversionService().convert(date, LocalDate.class)
+                    : null;
+                if (night != null) {
+                    nights.add(night);
+                }
+            }
+        }
+
+        List<ReservedInterval> intervals = new ArrayList<>();
+        // Intervals written by new bookings before the migration ran
+        List<?> existing = room.getList("reservedIntervals", Object.class);
+        if (existing != null) {
+            for (Object value : existing) {
+                if (value instanceof Document document) {
+                    ReservedInterval interval = mongoTemplate.getConverter().read(ReservedInterval.class, document);
+                    intervals.add(interval);
+                    nights.subSet(interval.getStart(), interval.getEnd()).clear();
+                }
+            }
+        }
+
+        // A reservation owns its stay if every one of its nights is still unclaimed
+        for (Reservation reservation : reservations) {
+            LocalDate checkIn = reservation.getCheckIn();
+            LocalDate checkOut = reservation.getCheckOut();
+            if (!checkIn.isBefore(checkOut)) {
+                continue;
+            }
+            long stayNights = checkIn.datesUntil(checkOut).count();
+            if (nights.subSet(checkIn, checkOut).size() == stayNights) {
+                intervals.add(new ReservedInterval(reservation.getId(), checkIn, checkOut));
+                nights.subSet(checkIn, checkOut).clear();
+            }
+        }
+
+        // Leftover nights as runs of consecutive nights
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate night : nights) {
+            if (start != null && !night.equals(end)) {
+                intervals.add(new ReservedInterval(null, start, end));
+                start = null;
+            }
+            if (start == null) {
+                start = night;
+            }
+            end = night.plusDays(1);
+        }
+        if (start != null) {
+            intervals.add(new ReservedInterval(null, start, end));
+        }
+
+        intervals.sort(Comparator.comparing(ReservedInterval::getStart));
+        return intervals;
+    }
+}
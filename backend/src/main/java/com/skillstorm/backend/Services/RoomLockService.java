@@ -0,0 +1,65 @@
+package com.skillstorm.backend.Services;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.stripe.exception.StripeException;
+
+// Striped per-room locks for the reservation read-modify-write flows
+// Work on the same room is serialized, work on different rooms runs in parallel (unless two rooms share a stripe)
+@Service
+public class RoomLockService {
+
+    private final ReentrantLock[] stripes;
+
+    // Work that runs while holding room locks (may call Stripe)
+    @FunctionalInterface
+    public interface RoomTask<T> {
+        T run() throws StripeException;
+    }
+
+    public RoomLockService(@Value("${reservations.lock-stripes:256}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("reservations.lock-stripes must be greater than 0");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Run a task while holding the locks of every given room
+    // Stripes are always acquired in ascending index order, so two tasks locking the same rooms can't deadlock
+    public <T> T withRoomLocks(Collection<String> roomIds, RoomTask<T> task) throws StripeException {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String roomId : roomIds) {
+            if (roomId != null) {
+                indexes.add(stripeFor(roomId));
+            }
+        }
+
+        Deque<ReentrantLock> held = new ArrayDeque<>();
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                held.push(stripes[index]);
+            }
+            return task.run();
+        } finally {
+            // Release in reverse order of acquisition
+            while (!held.isEmpty()) {
+                held.pop().unlock();
+            }
+        }
+    }
+
+    private int stripeFor(String roomId) {
+        return Math.floorMod(roomId.hashCode(), stripes.length);
+    }
+}
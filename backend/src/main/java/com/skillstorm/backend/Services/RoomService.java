@@ -1,24 +1,47 @@
 package com.skillstorm.backend.Services;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.skillstorm.backend.DTOs.CursorPage;
+import com.skillstorm.backend.DTOs.RoomSummaryDTO;
 import com.skillstorm.backend.Models.Room;
 import com.skillstorm.backend.Repositories.RoomRepository;
 
 @Service
 public class RoomService {
 
+    // Fields the room listing can be sorted by (set on every room)
+    private static final List<String> SORT_FIELDS = List.of("id", "roomNumber");
+
 //Repo injection
     private final RoomRepository roomRepository;
+    private final InventoryService inventoryService;
+    private final long maxWindowDays;
+    private final CursorService cursorService;
+    private final MongoTemplate mongoTemplate;
 
-    public RoomService(RoomRepository roomRepository) {
+    public RoomService(RoomRepository roomRepository, InventoryService inventoryService,
+                       @Value("${rooms.dates-window.max-days:366}") long maxWindowDays, CursorService cursorService,
+                       MongoTemplate mongoTemplate) {
         this.roomRepository = roomRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryService = inventoryService;
+        this.maxWindowDays = maxWindowDays;
+        this.cursorService = cursorService;
     }
 
 
@@ -31,6 +54,25 @@ public class RoomService {
         return roomRepository.findAll();
     }
 
+    //GET every room as a summary, with the reserved nights in [datesFrom, datesTo) only if a window is given
+    //Without a window the reserved intervals are never read from MongoDB
+    public List<RoomSummaryDTO> getRoomSummaries(LocalDate datesFrom, LocalDate datesTo) {
+        if (!checkDateWindow(datesFrom, datesTo)) {
+            return roomRepository.findAllSummaries().stream().map(RoomSummaryDTO::of).toList();
+        }
+        return roomRepository.findAllSummariesWithIntervalsBetween(datesFrom, datesTo).stream()
+            .map(room -> RoomSummaryDTO.of(room, datesFrom, datesTo))
+            .toList();
+    }
+
+    //GET one keyset page of room summaries, see CursorService for size, sort ("field,asc|desc") and cursor
+    //Pages never carry reserved nights, ask /rooms/{id} or an unpaged date window for those
+    public CursorPage<RoomSummaryDTO> getRoomSummaryPage(Integer size, String sort, String cursor) {
+        Sort order = cursorService.sort(sort, SORT_FIELDS);
+        Window<Room> window = roomRepository.findSummariesBy(cursorService.position(cursor, order), cursorService.limit(size), order);
+        return cursorService.page(window, order).map(RoomSummaryDTO::of);
+    }
+
     //GET room by ID
     public Room findRoomById(String id) {
         Optional<Room> roomOpt = roomRepository.findById(id);
@@ -50,45 +92,37 @@ public class RoomService {
         return roomOpt.get();
     }
 
-    // GET available rooms by dates and optional typeId (case-insensitive)
+    // GET available rooms by dates and optional typeId
+    // Answered from the in-memory inventory index once it is loaded
+    // Otherwise the overlap check runs inside MongoDB, so only matching rooms come back over the wire
     public List<Room> findAvailableRooms(List<LocalDate> requestedDates, String typeId) {
-        // Expand date range if only checkIn and checkOut are provided
-        final List<LocalDate> datesToCheck;
-        if (requestedDates != null && requestedDates.size() == 2) {
-            LocalDate checkIn = requestedDates.get(0);
-            LocalDate checkOut = requestedDates.get(1);
-            // Generate all dates in the range (include checkin and exclude checkout)
-            datesToCheck = new ArrayList<>();
-            LocalDate date = checkIn;
-            while (date.isBefore(checkOut)) {
-                datesToCheck.add(date);
-                date = date.plusDays(1);
+        if (inventoryService.isLoaded()) {
+            if (requestedDates != null && requestedDates.size() == 2) {
+                return inventoryService.findAvailableRooms(requestedDates.get(0), requestedDates.get(1), typeId);
             }
-        } else {
-            datesToCheck = requestedDates;
-        }
-        
-        List<Room> allRooms = roomRepository.findAll();
-        return allRooms.stream()
-                .filter(room -> {
-                    // If typeId is provided, filter case-insensitively
-                    if (typeId != null && !typeId.isEmpty()) {
-                        if (room.getTypeId() == null || !room.getTypeId().equalsIgnoreCase(typeId)) {
-                            return false;
-                        }
-                    }
-                    // Exclude rooms with any overlapping reserved dates
-                    List<LocalDate> reserved = room.getDatesReserved();
-                    if (reserved == null || reserved.isEmpty()) return true;
-                    for (LocalDate date : datesToCheck) {
-                        if (reserved.contains(date)) {
-                            return false;
-                        }
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
+            return inventoryService.findAvailableRooms(requestedDates != null ? requestedDates : List.of(), typeId);
+        }
+
+        // No reserved interval may overlap any requested range
+        List<Criteria> criteria = new ArrayList<>();
+        if (typeId != null && !typeId.isEmpty()) {
+            criteria.add(Criteria.where("typeId").is(typeId));
+        }
+        for (LocalDate[] range : requestedRanges(requestedDates)) {
+            criteria.add(Criteria.where("reservedIntervals").not()
+                .elemMatch(Criteria.where("start").lt(range[1]).and("end").gt(range[0])));
+        }
+        Query query = criteria.isEmpty() ? new Query() : Query.query(new Criteria().andOperator(criteria));
+        return mongoTemplate.find(query, Room.class);
+    }
 
+    // GET available rooms as summaries, with the reserved nights in [datesFrom, datesTo) only if a window is given
+    public List<RoomSummaryDTO> findAvailableRoomSummaries(List<LocalDate> requestedDates, String typeId,
+                                                           LocalDate datesFrom, LocalDate datesTo) {
+        checkDateWindow(datesFrom, datesTo);
+        return findAvailableRooms(requestedDates, typeId).stream()
+            .map(room -> RoomSummaryDTO.of(room, datesFrom, datesTo))
+            .toList();
     }
 
 
@@ -98,26 +132,64 @@ public class RoomService {
     //CREATE new room
     public Room createRoom(Room room) {
         // Validate all required fields
-        if (room.getRoomNumber() == null || room.getTypeId() == null || room.getStatus() == null || room.getDatesReserved() == null) {
-            throw new IllegalArgumentException("Missing required fields: roomNumber, typeId, status, datesReserved");
+        if (room.getRoomNumber() == null || room.getTypeId() == null || room.getStatus() == null) {
+            throw new IllegalArgumentException("Missing required fields: roomNumber, typeId, status");
+        }
+        // Nights are only ever reserved by reservations
+        room.setReservedIntervals(null);
+        // Room numbers are unique (rooms.roomNumber index)
+        if (roomRepository.findByRoomNumber(room.getRoomNumber()).isPresent()) {
+            throw new IllegalArgumentException("Room with number " + room.getRoomNumber() + " already exists");
         }
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        inventoryService.refreshRoom(saved);
+        return saved;
     }
 
-    //UPDATE room (for updating datesReserved)
+    //UPDATE room
     public Room saveRoom(Room room) {
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        inventoryService.refreshRoom(saved);
+        return saved;
+    }
+
+    //Atomically reserve the nights [checkIn, checkOut) on a room for a reservation, only if no other reservation holds any of them
+    //Returns false if any night is taken (nothing is written in that case)
+    //The reservation's own intervals don't count, so a stay can be moved to overlapping dates of the same room
+    public boolean reserveInterval(String roomId, String reservationId, LocalDate checkIn, LocalDate checkOut) {
+        if (!checkIn.isBefore(checkOut)) {
+            return true;
+        }
+        boolean reserved = roomRepository.reserveIntervalIfFree(roomId, reservationId, checkIn, checkOut) == 1;
+        if (reserved) {
+            refreshInventory(roomId);
+        }
+        return reserved;
+    }
+
+    //Atomically release the reservation's nights [checkIn, checkOut) on a room
+    public void releaseInterval(String roomId, String reservationId, LocalDate checkIn, LocalDate checkOut) {
+        if (!checkIn.isBefore(checkOut)) {
+            return;
+        }
+        roomRepository.releaseInterval(roomId, reservationId, checkIn, checkOut);
+        refreshInventory(roomId);
     }
 
     //UPDATE room details by id
     public Room updateRoom(String id, Room updatedRoom) {
         Room existingRoom = findRoomById(id);
         // Update fields (add more as needed)
+        if (updatedRoom.getRoomNumber() != null && !updatedRoom.getRoomNumber().equals(existingRoom.getRoomNumber())
+                && roomRepository.findByRoomNumber(updatedRoom.getRoomNumber()).isPresent()) {
+            throw new IllegalArgumentException("Room with number " + updatedRoom.getRoomNumber() + " already exists");
+        }
         if (updatedRoom.getRoomNumber() != null) existingRoom.setRoomNumber(updatedRoom.getRoomNumber());
         if (updatedRoom.getTypeId() != null) existingRoom.setTypeId(updatedRoom.getTypeId());
         if (updatedRoom.getStatus() != null) existingRoom.setStatus(updatedRoom.getStatus());
-        if (updatedRoom.getDatesReserved() != null) existingRoom.setDatesReserved(updatedRoom.getDatesReserved());
-        return roomRepository.save(existingRoom);
+        Room saved = roomRepository.save(existingRoom);
+        inventoryService.refreshRoom(saved);
+        return saved;
     }
 
 
@@ -130,8 +202,59 @@ public class RoomService {
             throw new IllegalArgumentException("Room with id " + id + " does not exist");
         }
         roomRepository.deleteById(id);
+        inventoryService.removeRoom(id);
     }
 
 
- 
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // If only checkIn and checkOut are provided, that is one [checkIn, checkOut) range
+    // Otherwise the requested dates are checked individually as one-night ranges
+    private static List<LocalDate[]> requestedRanges(List<LocalDate> requestedDates) {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        if (requestedDates == null) {
+            return ranges;
+        }
+        if (requestedDates.size() == 2) {
+            ranges.add(new LocalDate[] {requestedDates.get(0), requestedDates.get(1)});
+            return ranges;
+        }
+        for (LocalDate night : requestedDates) {
+            ranges.add(new LocalDate[] {night, night.plusDays(1)});
+        }
+        return ranges;
+    }
+
+    // Re-read a room after an atomic update so the inventory index matches the database
+    // Inside a MongoDB transaction this waits for the commit, an aborted transaction must not reach the index
+    private void refreshInventory(String roomId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roomRepository.findById(roomId).ifPresent(inventoryService::refreshRoom);
+                }
+            });
+            return;
+        }
+        roomRepository.findById(roomId).ifPresent(inventoryService::refreshRoom);
+    }
+
+    // True if a date window was requested, both ends or neither must be given and it may span at most maxWindowDays
+    private boolean checkDateWindow(LocalDate datesFrom, LocalDate datesTo) {
+        if (datesFrom == null && datesTo == null) {
+            return false;
+        }
+        if (datesFrom == null || datesTo == null) {
+            throw new IllegalArgumentException("datesFrom and datesTo must be given together");
+        }
+        if (!datesFrom.isBefore(datesTo)) {
+            throw new IllegalArgumentException("datesFrom must be before datesTo");
+        }
+        if (ChronoUnit.DAYS.between(datesFrom, datesTo) > maxWindowDays) {
+            throw new IllegalArgumentException("Date window can span at most " + maxWindowDays + " days");
+        }
+        return true;
+    }
 }
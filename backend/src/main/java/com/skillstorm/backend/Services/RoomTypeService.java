@@ -1,8 +1,20 @@
 package com.skillstorm.backend.Services;
 
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.skillstorm.backend.Models.RoomType;
@@ -13,6 +25,11 @@ import com.skillstorm.backend.Models.Room;
 import com.skillstorm.backend.Repositories.ReservationRepository;
 import com.skillstorm.backend.Repositories.RoomRepository;
 
+import tools.jackson.databind.ObjectMapper;
+
+// Room types are read from an in-process snapshot of the whole catalog (it changes a few times a year)
+// Writes through this service update the snapshot right away, writes on other nodes show up after the TTL
+// Cached RoomType instances are shared, treat them as read-only
 @Service
 public class RoomTypeService {
 
@@ -20,11 +37,45 @@ public class RoomTypeService {
     private final RoomTypeRepository roomTypeRepository;
     private final ReservationRepository reservationRepository;
     private final RoomRepository roomRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration cacheTtl;
+    private final int cacheMaxEntries;
+
+    private volatile Catalog catalog;
+
+    // Serializes reloads and write-throughs, a lock rather than synchronized so a reload waiting on Mongo doesn't pin
+    // a virtual thread's carrier
+    private final ReentrantLock catalogLock = new ReentrantLock();
+
+    // Immutable snapshot: room types by id (in findAll order) and the validators for GET /room-types/all
+    // etag is a hash of the serialized catalog, so every node computes the same value for the same data
+    private record Catalog(Map<String, RoomType> byId, List<RoomType> all, Map<String, String> etags,
+                           String etag, Instant lastModified, Instant loadedAt) {
+
+        // Stands in for a catalog larger than the cache bound until the TTL runs out, so reads go straight to Mongo
+        // instead of reloading the whole catalog each time just to find out it is still too large
+        static Catalog tooLarge() {
+            return new Catalog(null, null, null, null, null, Instant.now());
+        }
+
+        boolean isTooLarge() {
+            return byId == null;
+        }
+    }
 
-    public RoomTypeService(RoomTypeRepository roomTypeRepository, ReservationRepository reservationRepository, RoomRepository roomRepository) {
+    // What GET /room-types/all sends: the list and its validators, always taken together
+    public record CatalogSnapshot(List<RoomType> roomTypes, String etag, Instant lastModified) {}
+
+    public RoomTypeService(RoomTypeRepository roomTypeRepository, ReservationRepository reservationRepository, RoomRepository roomRepository,
+                           ObjectMapper objectMapper,
+                           @Value("${room-types.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                           @Value("${room-types.cache.max-entries:1000}") int cacheMaxEntries) {
         this.roomTypeRepository = roomTypeRepository;
         this.reservationRepository = reservationRepository;
         this.roomRepository = roomRepository;
+        this.objectMapper = objectMapper;
+        this.cacheTtl = Duration.ofSeconds(Math.max(0, cacheTtlSeconds));
+        this.cacheMaxEntries = Math.max(1, cacheMaxEntries);
     }
 
 
@@ -33,12 +84,14 @@ public class RoomTypeService {
 
     //GET all room types
     public List<RoomType> getAllRoomTypes() {
-        return roomTypeRepository.findAll();
+        Catalog current = catalog();
+        return !current.isTooLarge() ? current.all() : roomTypeRepository.findAll();
     }
 
     //GET room type by ID
     public RoomType findRoomTypeById(String id) {
-        RoomType roomType = roomTypeRepository.findById(id).orElse(null);
+        Catalog current = catalog();
+        RoomType roomType = !current.isTooLarge() ? current.byId().get(id) : roomTypeRepository.findById(id).orElse(null);
 
         if (roomType != null) {
             return roomType;
@@ -59,8 +112,28 @@ public class RoomTypeService {
 
         String typeId = room.getTypeId();
 
-        return roomTypeRepository.findById(typeId)
-            .orElseThrow(() -> new IllegalArgumentException("RoomType not found for id: " + typeId));
+        try {
+            return findRoomTypeById(typeId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("RoomType not found for id: " + typeId);
+        }
+    }
+
+    // All room types with the ETag and Last-Modified of that same list, read from one catalog
+    // (etag and lastModified are null when the catalog is too large to cache, lastModified also when no room type
+    // has an updatedAt yet)
+    public CatalogSnapshot getCatalogSnapshot() {
+        Catalog current = catalog();
+        if (current.isTooLarge()) {
+            return new CatalogSnapshot(List.copyOf(roomTypeRepository.findAll()), null, null);
+        }
+        return new CatalogSnapshot(current.all(), current.etag(), current.lastModified());
+    }
+
+    // ETag of one room type
+    public String getRoomTypeETag(String id) {
+        Catalog current = catalog();
+        return !current.isTooLarge() ? current.etags().get(id) : null;
     }
 
 
@@ -74,7 +147,10 @@ public class RoomTypeService {
             roomType.getMaxGuests() == null || roomType.getSquareFootage() == null) {
             throw new IllegalArgumentException("Missing required fields: name, pricePerNight, maxGuests, squareFootage");
         }
-        return roomTypeRepository.save(roomType);
+        roomType.setUpdatedAt(Instant.now());
+        RoomType saved = roomTypeRepository.save(roomType);
+        applyToCatalog(saved.getId(), saved);
+        return saved;
     }
 
 
@@ -83,13 +159,18 @@ public class RoomTypeService {
 
     //Update room type details
     public RoomType updateRoomType(String id, RoomType updatedRoomType) {
-        RoomType existing = findRoomTypeById(id);
+        // Read from Mongo, the cached instance is shared and must not be modified
+        RoomType existing = roomTypeRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("No room type found with id: " + id));
         if (updatedRoomType.getName() != null) existing.setName(updatedRoomType.getName());
         if (updatedRoomType.getPricePerNight() != null) existing.setPricePerNight(updatedRoomType.getPricePerNight());
         if (updatedRoomType.getMaxGuests() != null) existing.setMaxGuests(updatedRoomType.getMaxGuests());
         if (updatedRoomType.getSquareFootage() != null) existing.setSquareFootage(updatedRoomType.getSquareFootage());
         if (updatedRoomType.getAmenities() != null) existing.setAmenities(updatedRoomType.getAmenities());
-        return roomTypeRepository.save(existing);
+        existing.setUpdatedAt(Instant.now());
+        RoomType saved = roomTypeRepository.save(existing);
+        applyToCatalog(id, saved);
+        return saved;
     }
 
 
@@ -102,5 +183,93 @@ public class RoomTypeService {
             throw new IllegalArgumentException("Room type with id " + id + " does not exist");
         }
         roomTypeRepository.deleteById(id);
+        applyToCatalog(id, null);
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Current snapshot, (re)loaded from Mongo when missing or older than the TTL
+    // A catalog larger than the cache bound is only counted, callers then read Mongo directly (isTooLarge)
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current != null && current.loadedAt().plus(cacheTtl).isAfter(Instant.now())) {
+            return current;
+        }
+        catalogLock.lock();
+        try {
+            current = catalog;
+            if (current == null || !current.loadedAt().plus(cacheTtl).isAfter(Instant.now())) {
+                current = roomTypeRepository.count() > cacheMaxEntries
+                        ? Catalog.tooLarge()
+                        : buildCatalog(roomTypeRepository.findAll());
+                catalog = current;
+            }
+            return current;
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    // Replace (or remove, when roomType is null) one entry of the snapshot after a write
+    private void applyToCatalog(String id, RoomType roomType) {
+        catalogLock.lock();
+        try {
+            Catalog current = catalog;
+            if (current == null) {
+                return; // loaded on the next read
+            }
+            if (current.isTooLarge()) {
+                catalog = null; // counted again on the next read, the write may have brought it under the bound
+                return;
+            }
+            List<RoomType> all = new ArrayList<>();
+            boolean replaced = false;
+            for (RoomType existing : current.all()) {
+                if (existing.getId().equals(id)) {
+                    if (roomType != null) {
+                        all.add(roomType);
+                    }
+                    replaced = true;
+                } else {
+                    all.add(existing);
+                }
+            }
+            if (!replaced && roomType != null) {
+                all.add(roomType);
+            }
+            catalog = buildCatalog(all);
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    private Catalog buildCatalog(List<RoomType> roomTypes) {
+        if (roomTypes.size() > cacheMaxEntries) {
+            return Catalog.tooLarge();
+        }
+        Map<String, RoomType> byId = new LinkedHashMap<>();
+        Map<String, String> etags = new LinkedHashMap<>();
+        Instant lastModified = null;
+        for (RoomType roomType : roomTypes) {
+            byId.put(roomType.getId(), roomType);
+            etags.put(roomType.getId(), etagOf(roomType));
+            if (roomType.getUpdatedAt() != null && (lastModified == null || roomType.getUpdatedAt().isAfter(lastModified))) {
+                lastModified = roomType.getUpdatedAt();
+            }
+        }
+        return new Catalog(Collections.unmodifiableMap(byId), List.copyOf(roomTypes), Collections.unmodifiableMap(etags),
+            etagOf(roomTypes), lastModified, Instant.now());
+    }
+
+    private String etagOf(Object value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(objectMapper.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
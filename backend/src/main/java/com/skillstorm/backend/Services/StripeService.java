@@ -2,6 +2,7 @@ package com.skillstorm.backend.Services;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.stripe.exception.StripeException;
@@ -10,8 +11,11 @@ import com.stripe.model.PaymentIntent;
 import com.stripe.model.PaymentMethod;
 import com.stripe.model.Refund;
 import com.stripe.model.SetupIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.CustomerCreateParams;
+import com.stripe.param.PaymentIntentCaptureParams;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentIncrementAuthorizationParams;
 import com.stripe.param.PaymentMethodAttachParams;
 import com.stripe.param.PaymentMethodListParams;
 import com.stripe.param.RefundCreateParams;
@@ -20,6 +24,18 @@ import com.stripe.param.SetupIntentCreateParams;
 @Service
 public class StripeService {
 
+    // Opt-in, only accounts with the feature enabled accept the request (others reject every new hold)
+    private final boolean incrementalAuthorization;
+
+    public StripeService(@Value("${stripe.incremental-authorization:false}") boolean incrementalAuthorization) {
+        this.incrementalAuthorization = incrementalAuthorization;
+    }
+
+    // Whether holds are placed asking for incremental authorization, without it incrementAuthorization always fails
+    public boolean isIncrementalAuthorizationEnabled() {
+        return incrementalAuthorization;
+    }
+
 //CUSTOMER OPERATIONS////////////////////////////////////////////////////////////////////////////////////////////
 
     // Create a new Stripe customer (called when user registers)
@@ -34,8 +50,7 @@ public class StripeService {
 
     // Attach a payment method to a customer (for frontend-tokenized payment methods)
     public PaymentMethod attachPaymentMethod(String paymentMethodId, String customerId) throws StripeException {
-        PaymentMethod pm = PaymentMethod.retrieve(paymentMethodId);
-        return pm.attach(PaymentMethodAttachParams.builder()
+        return paymentMethodById(paymentMethodId).attach(PaymentMethodAttachParams.builder()
                 .setCustomer(customerId)
                 .build());
     }
@@ -68,15 +83,16 @@ public class StripeService {
                                 .setEnabled(true)
                                 .setAllowRedirects(SetupIntentCreateParams.AutomaticPaymentMethods.AllowRedirects.NEVER)
                                 .build())
+                // Return the payment method with the SetupIntent instead of retrieving it afterwards
+                .addExpand("payment_method")
                 .build());
 
-        return PaymentMethod.retrieve(setupIntent.getPaymentMethod());
+        return setupIntent.getPaymentMethodObject();
     }
 
     //Detach a payment method from a customer
     public PaymentMethod detachPaymentMethod(String paymentMethodId) throws StripeException {
-        PaymentMethod pm = PaymentMethod.retrieve(paymentMethodId);
-        return pm.detach();
+        return paymentMethodById(paymentMethodId).detach();
     }
 
 //PAYMENT INTENT OPERATIONS////////////////////////////////////////////////////////////////////////////////////////////
@@ -84,7 +100,24 @@ public class StripeService {
     // Create a payment intent with manual capture (holds funds until check-in)
     public PaymentIntent createPaymentIntent(Long amount, String currency, String customerId, String paymentMethodId, String email)
             throws StripeException {
-        return PaymentIntent.create(PaymentIntentCreateParams.builder()
+        return createPaymentIntent(amount, currency, customerId, paymentMethodId, email, null);
+    }
+
+    // Same as above, a repeated idempotency key returns the original PaymentIntent instead of placing a second hold
+    // The payment method comes back expanded (getPaymentMethodObject, with the card's last4) in the same call
+    // With stripe.incremental-authorization on, it is requested where the card supports it, so a later update can raise the hold in place
+    public PaymentIntent createPaymentIntent(Long amount, String currency, String customerId, String paymentMethodId, String email,
+            String idempotencyKey) throws StripeException {
+        PaymentIntentCreateParams.Builder params = PaymentIntentCreateParams.builder();
+        if (incrementalAuthorization) {
+            params.setPaymentMethodOptions(PaymentIntentCreateParams.PaymentMethodOptions.builder()
+                    .setCard(PaymentIntentCreateParams.PaymentMethodOptions.Card.builder()
+                            .setRequestIncrementalAuthorization(
+                                    PaymentIntentCreateParams.PaymentMethodOptions.Card.RequestIncrementalAuthorization.IF_AVAILABLE)
+                            .build())
+                    .build());
+        }
+        return PaymentIntent.create(params
                 .setAmount(amount)
                 .setCurrency(currency)
                 .setCustomer(customerId)
@@ -97,17 +130,48 @@ public class StripeService {
                                 .setAllowRedirects(PaymentIntentCreateParams.AutomaticPaymentMethods.AllowRedirects.NEVER)
                                 .build())
                 .setConfirm(true)
-                .build());
+                .addExpand("payment_method")
+                .build(), requestOptions(idempotencyKey));
+    }
+
+    // Retrieve a payment intent (e.g. to find the card of a hold that is being replaced)
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId);
+    }
+
+    // Raise the held amount of an uncaptured payment intent to amount (the new total), the hold keeps its id
+    // Only works if the card granted incremental authorization when the hold was placed, Stripe rejects it otherwise
+    public PaymentIntent incrementAuthorization(String paymentIntentId, Long amount, String idempotencyKey) throws StripeException {
+        return paymentIntentById(paymentIntentId).incrementAuthorization(PaymentIntentIncrementAuthorizationParams.builder()
+                .setAmount(amount)
+                .build(), requestOptions(idempotencyKey));
     }
 
     // Capture a payment intent (called on check-in)
     public PaymentIntent capturePayment(String paymentIntentId) throws StripeException {
-        return PaymentIntent.retrieve(paymentIntentId).capture();
+        return capturePayment(paymentIntentId, null, null);
+    }
+
+    public PaymentIntent capturePayment(String paymentIntentId, String idempotencyKey) throws StripeException {
+        return capturePayment(paymentIntentId, null, idempotencyKey);
+    }
+
+    // amountToCapture (optional) below the held amount captures only that much and releases the rest
+    public PaymentIntent capturePayment(String paymentIntentId, Long amountToCapture, String idempotencyKey) throws StripeException {
+        PaymentIntentCaptureParams.Builder params = PaymentIntentCaptureParams.builder();
+        if (amountToCapture != null) {
+            params.setAmountToCapture(amountToCapture);
+        }
+        return paymentIntentById(paymentIntentId).capture(params.build(), requestOptions(idempotencyKey));
     }
 
     // Cancel a payment intent (called on reservation cancellation)
     public PaymentIntent cancelPayment(String paymentIntentId) throws StripeException {
-        return PaymentIntent.retrieve(paymentIntentId).cancel();
+        return cancelPayment(paymentIntentId, null);
+    }
+
+    public PaymentIntent cancelPayment(String paymentIntentId, String idempotencyKey) throws StripeException {
+        return paymentIntentById(paymentIntentId).cancel(requestOptions(idempotencyKey));
     }
 
     // Refund a captured payment
@@ -116,4 +180,30 @@ public class StripeService {
                 .setPaymentIntent(paymentIntentId)
                 .build());
     }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Capture, cancel, attach, ... only need the object's id, so they are sent on a local stub
+    // instead of retrieving the object first (one round trip instead of two)
+    private static PaymentIntent paymentIntentById(String paymentIntentId) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setId(paymentIntentId);
+        return paymentIntent;
+    }
+
+    private static PaymentMethod paymentMethodById(String paymentMethodId) {
+        PaymentMethod paymentMethod = new PaymentMethod();
+        paymentMethod.setId(paymentMethodId);
+        return paymentMethod;
+    }
+
+    // Request options carrying the Stripe idempotency key (default options when there is no key)
+    private RequestOptions requestOptions(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return RequestOptions.getDefault();
+        }
+        return RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+    }
 }
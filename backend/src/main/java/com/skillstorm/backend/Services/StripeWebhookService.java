@@ -0,0 +1,74 @@
+package com.skillstorm.backend.Services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+
+// Verifies Stripe webhook deliveries and applies them to the PaymentIntent mirror
+// Subscribe the endpoint to payment_intent.* and charge.* events, other events are acknowledged and ignored
+// stripe.webhook.secret is the endpoint's signing secret (whsec_...), the endpoint is off without it
+@Service
+public class StripeWebhookService {
+
+    private final PaymentIntentMirrorService mirror;
+    private final String secret;
+    private final long toleranceSeconds;
+
+    public StripeWebhookService(PaymentIntentMirrorService mirror,
+                                @Value("${stripe.webhook.secret:}") String secret,
+                                @Value("${stripe.webhook.tolerance-seconds:300}") long toleranceSeconds) {
+        this.mirror = mirror;
+        this.secret = secret;
+        this.toleranceSeconds = toleranceSeconds;
+    }
+
+    public boolean isEnabled() {
+        return secret != null && !secret.isBlank();
+    }
+
+    // Returns the type of the event that was handled
+    // Throws SignatureVerificationException if the Stripe-Signature header doesn't match the payload or is too old
+    public String handle(String payload, String signatureHeader) throws SignatureVerificationException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Stripe webhook is not configured");
+        }
+        Event event = Webhook.constructEvent(payload, signatureHeader, secret, toleranceSeconds);
+        String type = event.getType();
+
+        if (type.startsWith("payment_intent.")) {
+            if (dataObject(event) instanceof PaymentIntent paymentIntent) {
+                mirror.apply(paymentIntent, event.getCreated());
+            }
+        } else if (type.startsWith("charge.")) {
+            if (dataObject(event) instanceof Charge charge) {
+                mirror.applyCharge(charge);
+            }
+        }
+        return type;
+    }
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Events sent with another API version than the SDK's are read leniently, the mirrored fields are stable across versions
+    private static StripeObject dataObject(Event event) {
+        EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+        if (deserializer.getObject().isPresent()) {
+            return deserializer.getObject().get();
+        }
+        try {
+            return deserializer.deserializeUnsafe();
+        } catch (EventDataObjectDeserializationException e) {
+            throw new IllegalArgumentException("Unreadable " + event.getType() + " event " + event.getId() + ": " + e.getMessage());
+        }
+    }
+}
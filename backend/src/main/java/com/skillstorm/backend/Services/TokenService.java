@@ -0,0 +1,114 @@
+package com.skillstorm.backend.Services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.stereotype.Service;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import com.skillstorm.backend.Models.AppUser;
+
+// Optional stateless auth: a user logged in through HTTP Basic or OAuth2 exchanges that login for a signed token (HS256 JWT)
+// The token carries the user id, email and role and is checked with the shared secret only, so any replica can accept it
+// without a session or a database hit. Tokens can't be revoked before they expire, keep the TTL short
+@Service
+public class TokenService {
+
+    private static final String ISSUER = "hotel-backend";
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final AppUserService appUserService;
+    private final JwtEncoder encoder;
+    private final JwtDecoder decoder;
+
+    // A signed token and when it stops being accepted
+    public record IssuedToken(String token, Instant expiresAt) {}
+
+    public TokenService(@Value("${security.token.enabled:false}") boolean enabled,
+                        @Value("${security.token.secret:}") String secret,
+                        @Value("${security.token.ttl-minutes:60}") long ttlMinutes,
+                        AppUserService appUserService) {
+        this.enabled = enabled;
+        this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+        this.appUserService = appUserService;
+
+        if (!enabled) {
+            this.encoder = null;
+            this.decoder = null;
+            return;
+        }
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length < 32) {
+            throw new IllegalStateException("security.token.secret must be at least 32 bytes when security.token.enabled is true");
+        }
+        SecretKey key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+        NimbusJwtDecoder nimbusDecoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+        nimbusDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+        this.decoder = nimbusDecoder;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Issue a token for an already authenticated caller (Basic, OAuth2 session or an earlier token)
+    // The user is looked up once here so the role in the token is the current one
+    public IssuedToken issueToken(Authentication authentication) {
+        if (!enabled) {
+            throw new IllegalStateException("Token authentication is disabled");
+        }
+        AppUser user = appUserService.getUserByEmail(authentication.getName());
+
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(ttl);
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer(ISSUER)
+            .subject(user.getId())
+            .claim("email", user.getEmail())
+            .claim("role", user.getRole())
+            .issuedAt(now)
+            .expiresAt(expiresAt)
+            .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        String token = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        return new IssuedToken(token, expiresAt);
+    }
+
+    public JwtDecoder decoder() {
+        return decoder;
+    }
+
+    // Token -> Authentication named by email (like Basic and OAuth2 logins) with the ROLE_ authority of the role claim
+    public Converter<Jwt, AbstractAuthenticationToken> authenticationConverter() {
+        JwtGrantedAuthoritiesConverter authorities = new JwtGrantedAuthoritiesConverter();
+        authorities.setAuthoritiesClaimName("role");
+        authorities.setAuthorityPrefix("ROLE_");
+
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(authorities);
+        converter.setPrincipalClaimName("email");
+        return converter;
+    }
+}
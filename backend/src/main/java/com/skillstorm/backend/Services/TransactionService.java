@@ -4,21 +4,34 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import com.skillstorm.backend.DTOs.CursorPage;
 import com.skillstorm.backend.Models.Transaction;
 import com.skillstorm.backend.Repositories.TransactionRepository;
-import com.stripe.exception.StripeException;
+import com.skillstorm.backend.Services.RevenueRollupService.Contribution;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.PaymentMethod;
 
 @Service
 public class TransactionService {
-    
+
+    // Fields the transaction listing can be sorted by (set on every transaction)
+    private static final List<String> SORT_FIELDS = List.of("id", "authorizedAt");
+
     private final TransactionRepository transactionRepository;
+    private final RevenueRollupService revenueRollupService;
+    private final CursorService cursorService;
+    private final PaymentIntentMirrorService paymentIntentMirror;
 
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository, RevenueRollupService revenueRollupService,
+                              CursorService cursorService, PaymentIntentMirrorService paymentIntentMirror) {
         this.transactionRepository = transactionRepository;
+        this.revenueRollupService = revenueRollupService;
+        this.cursorService = cursorService;
+        this.paymentIntentMirror = paymentIntentMirror;
     }
 
 
@@ -30,6 +43,13 @@ public class TransactionService {
         return transactionRepository.findAll();
     }
 
+    // GET one keyset page of transactions, see CursorService for size, sort ("field,asc|desc") and cursor
+    public CursorPage<Transaction> getTransactionPage(Integer size, String sort, String cursor) {
+        Sort order = cursorService.sort(sort, SORT_FIELDS);
+        Window<Transaction> window = transactionRepository.findAllBy(cursorService.position(cursor, order), cursorService.limit(size), order);
+        return cursorService.page(window, order);
+    }
+
     //GET transaction by ID
     public Transaction getTransactionById(String id) {
         Optional<Transaction> txOpt = transactionRepository.findById(id);
@@ -57,6 +77,11 @@ public class TransactionService {
         return txOpt.get();
     }
 
+    //GET transaction by PAYMENT INTENT ID (empty if no transaction was recorded for the hold)
+    public Optional<Transaction> findTransactionByPaymentIntentId(String paymentIntentId) {
+        return transactionRepository.findByPaymentIntentId(paymentIntentId);
+    }
+
 
 
 //POST METHODS////////////////////////////////////////////////////////////////////////////////////////////
@@ -64,8 +89,15 @@ public class TransactionService {
 
     //CREATE new transaction from PaymentIntent
     public Transaction createTransactionfromPaymentIntent(PaymentIntent paymentIntent, String reservationId, String userId
+    , String firstName, String lastName) {
+        return createTransaction(newTransactionFromPaymentIntent(paymentIntent, null, reservationId, userId, firstName, lastName));
+    }
+
+    //Build (without saving) the transaction for a PaymentIntent, id may be chosen by the caller (null lets Mongo pick one)
+    public Transaction newTransactionFromPaymentIntent(PaymentIntent paymentIntent, String id, String reservationId, String userId
     , String firstName, String lastName) {
         Transaction tx = new Transaction();
+        tx.setId(id);
         tx.setPaymentIntentId(paymentIntent.getId());
         tx.setTransactionStatus(paymentIntent.getStatus());
         tx.setAmount(paymentIntent.getAmount());
@@ -76,19 +108,23 @@ public class TransactionService {
         tx.setFirstName(firstName);
         tx.setLastName(lastName);
 
-        // Capture last4 digits of card from PaymentMethod
-        try {
-            if (paymentIntent.getPaymentMethod() != null) {
-                PaymentMethod pm = PaymentMethod.retrieve(paymentIntent.getPaymentMethod());
-                if (pm.getCard() != null) {
-                    tx.setLast4(pm.getCard().getLast4());
-                }
-            }
-        } catch (StripeException e) {
-            System.err.println("Failed to retrieve payment method details: " + e.getMessage());
+        // Last4 digits of the card from the payment method expanded by StripeService.createPaymentIntent (no Stripe call)
+        // A PaymentIntent without it falls back to the mirror, where the charge event fills it in later if needed
+        PaymentMethod paymentMethod = paymentIntent.getPaymentMethodObject();
+        if (paymentMethod != null && paymentMethod.getCard() != null) {
+            tx.setLast4(paymentMethod.getCard().getLast4());
+        } else {
+            paymentIntentMirror.find(paymentIntent.getId()).ifPresent(mirrored -> tx.setLast4(mirrored.getLast4()));
         }
 
-        return transactionRepository.save(tx);
+        return tx;
+    }
+
+    //CREATE a new transaction built by newTransactionFromPaymentIntent
+    public Transaction createTransaction(Transaction tx) {
+        Transaction saved = transactionRepository.save(tx);
+        revenueRollupService.apply(null, Contribution.of(saved));
+        return saved;
     }
 
     //CAPTURE a transaction from a PaymentIntent
@@ -98,9 +134,12 @@ public class TransactionService {
             throw new IllegalArgumentException("Transaction with payment intent id " + paymentIntentId + " does not exist");
         }
         Transaction tx = txOpt.get();
+        Contribution before = Contribution.of(tx);
         tx.setTransactionStatus("CAPTURED");
         tx.setCapturedAt(LocalDateTime.now());
-        return transactionRepository.save(tx);
+        Transaction saved = transactionRepository.save(tx);
+        revenueRollupService.apply(before, Contribution.of(saved));
+        return saved;
     }
 
 
@@ -108,8 +147,12 @@ public class TransactionService {
 
     //UPDATE a transaction amount (used when reservation is updated)
     public Transaction updateTransaction(Transaction transaction) {
+        // The caller already changed the amount, so the previous contribution comes from the stored copy
+        Contribution before = transactionRepository.findById(transaction.getId()).map(Contribution::of).orElse(null);
         transaction.setAuthorizedAt(LocalDateTime.now());
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        revenueRollupService.apply(before, Contribution.of(saved));
+        return saved;
     }
 
     
@@ -124,9 +167,11 @@ public class TransactionService {
             throw new IllegalArgumentException("Transaction with payment intent id " + paymentIntentId + " does not exist");
         }
         Transaction tx = txOpt.get();
+        Contribution before = Contribution.of(tx);
         tx.setTransactionStatus("CANCELLED");
         tx.setCancelledAt(LocalDateTime.now());
-        transactionRepository.save(tx);
+        Transaction saved = transactionRepository.save(tx);
+        revenueRollupService.apply(before, Contribution.of(saved));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.skillstorm.backend.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.util.ClassUtils;
+
+import com.skillstorm.backend.Models.Reservation;
+
+class IndexVerifierTests {
+
+	private final MongoMappingContext mappingContext = mappingContext();
+
+	// Every method on the real repositories is checked against the indexes the models declare,
+	// so a method the verifier can't read (or that no index supports) fails here instead of at startup
+	@Test
+	void everyRepositoryQueryMethodHasADeclaredIndex() throws Exception {
+		List<Class<?>> repositories = repositoryInterfaces();
+		assertFalse(repositories.isEmpty());
+
+		List<String> unsupported = new ArrayList<>();
+		for (Class<?> repositoryInterface : repositories) {
+			Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType();
+			unsupported.addAll(IndexVerifier.findUnsupportedQueryMethods(repositoryInterface, domainType,
+				queryMethods(repositoryInterface), declaredLeadingKeys(domainType)));
+		}
+
+		assertEquals(List.of(), unsupported);
+	}
+
+	@Test
+	void aggregationIsCheckedOnItsLeadingMatch() {
+		List<String> unsupported = IndexVerifier.findUnsupportedQueryMethods(ReservationAggregations.class, Reservation.class,
+			queryMethods(ReservationAggregations.class), Set.of("_id", "userId"));
+
+		assertEquals(List.of("ReservationAggregations.byRoom (roomId)"), unsupported);
+	}
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+	interface ReservationAggregations extends MongoRepository<Reservation, String> {
+
+		@Aggregation(pipeline = { "{ '$match': { 'userId': ?0 } }", "{ '$sort': { 'checkIn': 1 } }" })
+		List<Reservation> byUser(String userId);
+
+		@Aggregation(pipeline = { "{ '$match': { 'roomId': ?0 } }" })
+		List<Reservation> byRoom(String roomId);
+
+		@Aggregation(pipeline = { "{ '$sort': { 'checkIn': 1 } }" })
+		List<Reservation> sorted();
+	}
+
+	private static List<Class<?>> repositoryInterfaces() throws ClassNotFoundException {
+		ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+			@Override
+			protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+				return beanDefinition.getMetadata().isInterface();
+			}
+		};
+		scanner.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+
+		List<Class<?>> repositories = new ArrayList<>();
+		for (BeanDefinition candidate : scanner.findCandidateComponents("com.skillstorm.backend.Repositories")) {
+			repositories.add(ClassUtils.forName(candidate.getBeanClassName(), IndexVerifierTests.class.getClassLoader()));
+		}
+		return repositories;
+	}
+
+	// Methods declared on the repository itself, what RepositoryInformation.getQueryMethods() returns for these interfaces
+	private static List<Method> queryMethods(Class<?> repositoryInterface) {
+		List<Method> methods = new ArrayList<>();
+		for (Method method : repositoryInterface.getDeclaredMethods()) {
+			if (!method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+				methods.add(method);
+			}
+		}
+		return methods;
+	}
+
+	// Same simple types as the application's context, so java.time fields aren't mapped as entities
+	private static MongoMappingContext mappingContext() {
+		MongoMappingContext context = new MongoMappingContext();
+		context.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+		return context;
+	}
+
+	private Set<String> declaredLeadingKeys(Class<?> domainType) {
+		Set<String> keys = new HashSet<>(Set.of("_id"));
+		for (IndexDefinition index : new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(domainType)) {
+			keys.add(index.getIndexKeys().keySet().iterator().next());
+		}
+		return keys;
+	}
+}
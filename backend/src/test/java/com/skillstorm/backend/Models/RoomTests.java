@@ -0,0 +1,61 @@
+package com.skillstorm.backend.Models;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RoomTests {
+
+	@Test
+	void reservedIntervalExcludesCheckoutNight() {
+		Room room = new Room(101, "type", "AVAILABLE", List.of(
+			new ReservedInterval("r1", LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 13))));
+
+		assertTrue(room.isReservedOn(LocalDate.of(2025, 3, 12)));
+		assertFalse(room.isReservedOn(LocalDate.of(2025, 3, 13)));
+		assertTrue(room.isAvailable(LocalDate.of(2025, 3, 13), LocalDate.of(2025, 3, 20)));
+		assertFalse(room.isAvailable(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 11)));
+	}
+
+	@Test
+	void findsOverlapAmongUnsortedIntervals() {
+		Room room = new Room(101, "type", "AVAILABLE", List.of(
+			new ReservedInterval("r3", LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 2)),
+			new ReservedInterval("r1", LocalDate.of(2023, 12, 30), LocalDate.of(2024, 3, 5)),
+			new ReservedInterval("r2", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 8))));
+
+		assertTrue(room.isReservedOn(LocalDate.of(2025, 6, 1)));
+		assertTrue(room.isReservedOn(LocalDate.of(2024, 1, 31)));
+		assertFalse(room.isAvailable(LocalDate.of(2024, 3, 4), LocalDate.of(2024, 4, 1)));
+		assertTrue(room.isAvailable(LocalDate.of(2024, 3, 5), LocalDate.of(2024, 5, 1)));
+		assertFalse(room.isAvailable(LocalDate.of(2024, 4, 1), LocalDate.of(2025, 7, 1)));
+	}
+
+	@Test
+	void movedReservationIsSeenThroughItsOlderInterval() {
+		// While a reservation moves, its old [1, 30) and new [2, 3) intervals are both stored
+		Room room = new Room(101, "type", "AVAILABLE", List.of(
+			new ReservedInterval("r1", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 30)),
+			new ReservedInterval("r1", LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3))));
+
+		assertFalse(room.isAvailable(LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 11)));
+		assertTrue(room.isAvailable(LocalDate.of(2025, 1, 30), LocalDate.of(2025, 2, 1)));
+	}
+
+	@Test
+	void leftoverIntervalsDoNotHideAnOverlap() {
+		// An update that crashed between claiming and releasing left r1 with three intervals
+		Room room = new Room(101, "type", "AVAILABLE", List.of(
+			new ReservedInterval("r1", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 30)),
+			new ReservedInterval("r1", LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3)),
+			new ReservedInterval("r1", LocalDate.of(2025, 1, 4), LocalDate.of(2025, 1, 5))));
+
+		assertFalse(room.isAvailable(LocalDate.of(2025, 1, 20), LocalDate.of(2025, 1, 21)));
+		assertTrue(room.isAvailable(LocalDate.of(2025, 1, 30), LocalDate.of(2025, 2, 1)));
+	}
+
+}
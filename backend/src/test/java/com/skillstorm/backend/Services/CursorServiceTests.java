@@ -0,0 +1,77 @@
+package com.skillstorm.backend.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.skillstorm.backend.DTOs.CursorPage;
+
+class CursorServiceTests {
+
+	private final CursorService cursors = new CursorService(50, 500);
+
+	@Test
+	void cursorResumesAfterLastRowWithBsonTypes() {
+		Sort sort = cursors.sort("authorizedAt,desc", List.of("authorizedAt"));
+		ObjectId lastId = new ObjectId();
+		Date lastAuthorizedAt = Date.from(Instant.parse("2025-03-10T12:00:00Z"));
+		Map<String, Object> lastKeys = new LinkedHashMap<>();
+		lastKeys.put("authorizedAt", lastAuthorizedAt);
+		lastKeys.put("_id", lastId);
+
+		Window<String> window = Window.from(List.of("a", "b"),
+			index -> ScrollPosition.forward(index == 1 ? lastKeys : Map.of("authorizedAt", new Date(0), "_id", new ObjectId())),
+			true);
+		CursorPage<String> page = cursors.page(window, sort);
+
+		ScrollPosition position = cursors.position(page.nextCursor(), sort);
+		KeysetScrollPosition keyset = assertInstanceOf(KeysetScrollPosition.class, position);
+		assertTrue(keyset.scrollsForward());
+		assertEquals(lastId, keyset.getKeys().get("_id"));
+		assertEquals(lastAuthorizedAt, keyset.getKeys().get("authorizedAt"));
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		Sort sort = cursors.sort(null, List.of());
+		Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.forward(Map.of("_id", new ObjectId())), false);
+
+		assertNull(cursors.page(window, sort).nextCursor());
+	}
+
+	@Test
+	void cursorIsRejectedForAnotherSort() {
+		Sort madeFor = cursors.sort("amount,asc", List.of("amount", "authorizedAt"));
+		Window<String> window = Window.from(List.of("a"),
+			index -> ScrollPosition.forward(Map.of("amount", 5000L, "_id", new ObjectId())), true);
+		String cursor = cursors.page(window, madeFor).nextCursor();
+
+		Sort other = cursors.sort("amount,desc", List.of("amount", "authorizedAt"));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cursors.position(cursor, other));
+		assertEquals("Cursor does not match the requested sort", e.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> cursors.position("not-a-cursor", madeFor));
+	}
+
+	@Test
+	void sortOnlyAllowsListedFields() {
+		assertEquals(Sort.by(Sort.Direction.DESC, "amount").and(Sort.by(Sort.Direction.DESC, "id")),
+			cursors.sort("amount,desc", List.of("amount")));
+		assertThrows(IllegalArgumentException.class, () -> cursors.sort("userId", List.of("amount")));
+		assertThrows(IllegalArgumentException.class, () -> cursors.sort("amount,up", List.of("amount")));
+	}
+}
@@ -0,0 +1,167 @@
+package com.skillstorm.backend.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import com.skillstorm.backend.Models.IdempotencyRecord;
+import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Repositories.IdempotencyRecordRepository;
+
+class IdempotencyServiceTests {
+
+	private Map<String, IdempotencyRecord> records;
+	private IdempotencyRecordRepository repository;
+	private IdempotencyService idempotency;
+	private AtomicInteger runs;
+
+	@BeforeEach
+	void setUp() {
+		records = new HashMap<>();
+		repository = mock(IdempotencyRecordRepository.class);
+		when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+			IdempotencyRecord record = invocation.getArgument(0);
+			if (records.putIfAbsent(record.getId(), record) != null) {
+				throw new DuplicateKeyException("E11000 duplicate key error, _id: " + record.getId());
+			}
+			return record;
+		});
+		when(repository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+			IdempotencyRecord record = invocation.getArgument(0);
+			records.put(record.getId(), record);
+			return record;
+		});
+		when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(records.get(invocation.getArgument(0))));
+		doAnswer(invocation -> records.remove(invocation.getArgument(0))).when(repository).deleteById(anyString());
+		when(repository.deleteByIdAndStatusAndCreatedAt(anyString(), anyString(), any(Instant.class))).thenAnswer(invocation -> {
+			IdempotencyRecord record = records.get(invocation.getArgument(0));
+			if (record == null || !record.getStatus().equals(invocation.getArgument(1)) || !record.getCreatedAt().equals(invocation.getArgument(2))) {
+				return 0L;
+			}
+			records.remove(record.getId());
+			return 1L;
+		});
+
+		idempotency = new IdempotencyService(repository, 120);
+		runs = new AtomicInteger();
+	}
+
+	@Test
+	void replayReturnsStoredResultWithoutRunningAgain() throws Exception {
+		Reservation first = idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r1"));
+		Reservation replay = idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r2"));
+
+		assertEquals(1, runs.get());
+		assertEquals("r1", first.getId());
+		assertEquals("r1", replay.getId());
+	}
+
+	@Test
+	void sameKeyFromAnotherCallerRunsSeparately() throws Exception {
+		idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r1"));
+		Reservation other = idempotency.execute("key-1", "bob", "create room-101", () -> reservation("r2"));
+
+		assertEquals(2, runs.get());
+		assertEquals("r2", other.getId());
+	}
+
+	@Test
+	void requestInProgressIsRejected() throws Exception {
+		Reservation result = idempotency.execute("key-1", "alice", "create room-101", () -> {
+			IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r2")));
+			assertEquals("A request with this Idempotency-Key is still in progress", e.getMessage());
+			return reservation("r1");
+		});
+
+		assertEquals("r1", result.getId());
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void abandonedInProgressKeyIsTakenOver() throws Exception {
+		idempotency.execute("key-1", "alice", "create room-101", () -> {
+			// Looks like the node running it died long ago
+			records.values().iterator().next().setCreatedAt(Instant.now().minusSeconds(600));
+			Reservation takenOver = idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r2"));
+			assertEquals("r2", takenOver.getId());
+			return reservation("r1");
+		});
+
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	void abandonedKeyIsTakenOverOnce() throws Exception {
+		idempotency.execute("key-1", "alice", "create room-101", () -> {
+			IdempotencyRecord abandoned = records.values().iterator().next();
+			abandoned.setCreatedAt(Instant.now().minusSeconds(600));
+			// Another request takes it over between our read and our delete
+			records.put(abandoned.getId(), new IdempotencyRecord(abandoned.getId(), abandoned.getRequestHash(), "IN_PROGRESS", Instant.now()));
+			when(repository.findById(abandoned.getId())).thenReturn(Optional.of(abandoned), Optional.of(records.get(abandoned.getId())));
+
+			IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r2")));
+			assertEquals("A request with this Idempotency-Key is still in progress", e.getMessage());
+			return reservation("r1");
+		});
+
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void keyReusedForAnotherRequestIsRejected() throws Exception {
+		idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r1"));
+
+		assertThrows(IllegalStateException.class,
+			() -> idempotency.execute("key-1", "alice", "create room-202", () -> reservation("r2")));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void failedRequestCanBeRetriedWithSameKey() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> idempotency.execute("key-1", "alice", "create room-101", () -> {
+			runs.incrementAndGet();
+			throw new IllegalArgumentException("Room is not available for the selected dates");
+		}));
+		Reservation retried = idempotency.execute("key-1", "alice", "create room-101", () -> reservation("r1"));
+
+		assertEquals(2, runs.get());
+		assertEquals("r1", retried.getId());
+	}
+
+	@Test
+	void requestWithoutKeyAlwaysRuns() throws Exception {
+		idempotency.execute(null, "alice", "create room-101", () -> reservation("r1"));
+		Reservation second = idempotency.execute(" ", "alice", "create room-101", () -> reservation("r2"));
+
+		assertEquals(2, runs.get());
+		assertEquals("r2", second.getId());
+		assertEquals(0, records.size());
+	}
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+	private Reservation reservation(String id) {
+		runs.incrementAndGet();
+		Reservation reservation = new Reservation();
+		reservation.setId(id);
+		return reservation;
+	}
+}
@@ -0,0 +1,151 @@
+package com.skillstorm.backend.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.skillstorm.backend.Models.StripePaymentIntent;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeResponse;
+
+class PaymentIntentMirrorServiceTests {
+
+	// Sun, 18 Oct 2026 01:00:00 GMT
+	private static final long STRIPE_NOW = 1792285200L;
+
+	private Map<Object, Document> collection;
+	private PaymentIntentMirrorService mirror;
+
+	@BeforeEach
+	void setUp() {
+		collection = new HashMap<>();
+		MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+		when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(StripePaymentIntent.class)))
+			.thenAnswer(invocation -> {
+				upsert(invocation.getArgument(0), invocation.getArgument(1));
+				return null;
+			});
+		mirror = new PaymentIntentMirrorService(mongoTemplate);
+	}
+
+	@Test
+	void olderEventAfterNewerIsIgnored() {
+		mirror.apply(paymentIntent("canceled", 0), STRIPE_NOW + 10);
+		mirror.apply(paymentIntent("requires_capture", 5000), STRIPE_NOW);
+
+		assertEquals("canceled", stored().getString("status"));
+		assertEquals(STRIPE_NOW + 10, stored().getLong("lastEventCreated"));
+	}
+
+	@Test
+	void duplicateEventIsApplied() {
+		mirror.apply(paymentIntent("requires_capture", 5000), STRIPE_NOW);
+		mirror.apply(paymentIntent("requires_capture", 5000), STRIPE_NOW);
+
+		assertEquals("requires_capture", stored().getString("status"));
+		assertEquals(5000L, stored().getLong("amountCapturable"));
+	}
+
+	@Test
+	void recordIsTimedByStripeResponse() {
+		PaymentIntent captured = paymentIntent("succeeded", 0);
+		captured.setLastResponse(new StripeResponse(200,
+			HttpHeaders.of(Map.of("Date", List.of("Sun, 18 Oct 2026 01:00:00 GMT"))), "{}"));
+
+		mirror.record(captured);
+		// Delivered late, created before our capture
+		mirror.apply(paymentIntent("requires_capture", 5000), STRIPE_NOW - 60);
+		assertEquals("succeeded", stored().getString("status"));
+		assertEquals(STRIPE_NOW, stored().getLong("lastEventCreated"));
+
+		// Created after it
+		mirror.apply(paymentIntent("canceled", 0), STRIPE_NOW + 60);
+		assertEquals("canceled", stored().getString("status"));
+	}
+
+	@Test
+	void recordWithoutResponseDoesNotOverwriteEvents() {
+		mirror.apply(paymentIntent("canceled", 0), STRIPE_NOW);
+
+		mirror.record(paymentIntent("requires_capture", 5000));
+
+		assertEquals("canceled", stored().getString("status"));
+	}
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+	private static PaymentIntent paymentIntent(String status, long amountCapturable) {
+		PaymentIntent paymentIntent = new PaymentIntent();
+		paymentIntent.setId("pi_1");
+		paymentIntent.setStatus(status);
+		paymentIntent.setAmount(5000L);
+		paymentIntent.setAmountCapturable(amountCapturable);
+		paymentIntent.setCurrency("usd");
+		paymentIntent.setCreated(STRIPE_NOW - 3600);
+		return paymentIntent;
+	}
+
+	private Document stored() {
+		return collection.get("pi_1");
+	}
+
+	// Same outcome as MongoDB for the queries the mirror sends: update the matching document, insert when there is none,
+	// and fail on the unique _id when a document that didn't match already exists
+	private void upsert(Query query, Update update) {
+		Document filter = query.getQueryObject();
+		Document set = update.getUpdateObject().get("$set", Document.class);
+		for (Document document : collection.values()) {
+			if (matches(document, filter)) {
+				document.putAll(set);
+				return;
+			}
+		}
+		Object id = filter.get("_id");
+		if (collection.containsKey(id)) {
+			throw new DuplicateKeyException("E11000 duplicate key error, _id: " + id);
+		}
+		Document inserted = new Document("_id", id);
+		inserted.putAll(set);
+		collection.put(id, inserted);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean matches(Document document, Document filter) {
+		for (Map.Entry<String, Object> condition : filter.entrySet()) {
+			if ("$or".equals(condition.getKey())) {
+				if (((List<Document>) condition.getValue()).stream().noneMatch(branch -> matches(document, branch))) {
+					return false;
+				}
+			} else if (condition.getValue() instanceof Document operators) {
+				Object value = document.get(condition.getKey());
+				if (operators.containsKey("$exists") && document.containsKey(condition.getKey()) != operators.getBoolean("$exists")) {
+					return false;
+				}
+				if (operators.containsKey("$lte")
+						&& !(value instanceof Number number && number.longValue() <= ((Number) operators.get("$lte")).longValue())) {
+					return false;
+				}
+			} else if (!condition.getValue().equals(document.get(condition.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
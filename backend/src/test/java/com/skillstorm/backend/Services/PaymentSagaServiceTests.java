@@ -0,0 +1,362 @@
+package com.skillstorm.backend.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+import com.skillstorm.backend.Models.AppUser;
+import com.skillstorm.backend.Models.PaymentStep;
+import com.skillstorm.backend.Models.Reservation;
+import com.skillstorm.backend.Models.Room;
+import com.skillstorm.backend.Models.RoomType;
+import com.skillstorm.backend.Models.StripePaymentIntent;
+import com.skillstorm.backend.Models.Transaction;
+import com.skillstorm.backend.Repositories.AppUserRepository;
+import com.skillstorm.backend.Repositories.ReservationRepository;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.CardException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+
+class PaymentSagaServiceTests {
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	private MongoTemplate mongoTemplate;
+	private StripeService stripeService;
+	private ReservationRepository reservationRepository;
+	private TransactionService transactionService;
+	private RoomService roomService;
+	private PaymentIntentMirrorService paymentIntentMirror;
+	private PaymentSagaService saga;
+
+	private List<PaymentStep> enqueued;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		stripeService = mock(StripeService.class);
+		reservationRepository = mock(ReservationRepository.class);
+		AppUserRepository appUserRepository = mock(AppUserRepository.class);
+		transactionService = mock(TransactionService.class);
+		roomService = mock(RoomService.class);
+		RoomTypeService roomTypeService = mock(RoomTypeService.class);
+		MongoTransactionService mongoTransactions = mock(MongoTransactionService.class);
+		paymentIntentMirror = mock(PaymentIntentMirrorService.class);
+
+		// Steps are owned by the test's worker, transactions just run their action
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PaymentStep.class)))
+			.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+		enqueued = new ArrayList<>();
+		when(mongoTemplate.insert(any(PaymentStep.class))).thenAnswer(invocation -> {
+			enqueued.add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		when(mongoTransactions.run(any())).thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get());
+
+		AppUser user = new AppUser();
+		user.setId("u1");
+		user.setEmail("guest@example.com");
+		user.setFirstName("Ada");
+		user.setStripeCustomerId("cus_1");
+		when(appUserRepository.findById("u1")).thenReturn(Optional.of(user));
+
+		Room room = new Room(101, "t1", "AVAILABLE", List.of());
+		room.setId("room1");
+		when(roomService.findRoomById("room1")).thenReturn(room);
+		RoomType roomType = new RoomType();
+		roomType.setId("t1");
+		roomType.setName("Deluxe");
+		when(roomTypeService.findRoomTypeById("t1")).thenReturn(roomType);
+
+		when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(transactionService.newTransactionFromPaymentIntent(any(), anyString(), anyString(), anyString(), any(), any()))
+			.thenAnswer(invocation -> {
+				Transaction transaction = new Transaction();
+				transaction.setId(invocation.getArgument(1));
+				transaction.setPaymentIntentId(((PaymentIntent) invocation.getArgument(0)).getId());
+				return transaction;
+			});
+		when(transactionService.createTransaction(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(transactionService.updateTransaction(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		saga = new PaymentSagaService(mongoTemplate, stripeService, reservationRepository, appUserRepository,
+			transactionService, roomService, roomTypeService, mock(EmailService.class), mongoTransactions,
+			paymentIntentMirror, 1, MAX_ATTEMPTS, 5, 120);
+	}
+
+	@AfterEach
+	void tearDown() {
+		saga.shutdown();
+	}
+
+	@Test
+	void authorizeConfirmsReservation() throws Exception {
+		Reservation reservation = reservation("PENDING_PAYMENT");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		when(stripeService.createPaymentIntent(eq(5000L), eq("usd"), eq("cus_1"), eq("pm_1"), anyString(), eq("step1:authorize")))
+			.thenReturn(paymentIntent("pi_1", "requires_capture"));
+
+		saga.execute(claimed(PaymentStep.authorize("r1", 5000L, "pm_1"), 1));
+
+		assertEquals("PENDING", reservation.getStatus());
+		assertEquals("pi_1", reservation.getPaymentIntentId());
+		verify(transactionService).createTransaction(any(Transaction.class));
+		assertEquals("DONE", lastStepStatus());
+		assertTrue(enqueued.isEmpty());
+	}
+
+	@Test
+	void retryableErrorSchedulesAnotherAttempt() throws Exception {
+		Reservation reservation = reservation("PENDING_PAYMENT");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
+			.thenThrow(new ApiConnectionException("connection reset"));
+
+		saga.execute(claimed(PaymentStep.authorize("r1", 5000L, "pm_1"), 1));
+
+		Document set = lastStepSet();
+		assertEquals("PENDING", set.getString("status"));
+		assertNotNull(set.get("nextAttemptAt"));
+		assertEquals("PENDING_PAYMENT", reservation.getStatus());
+		verify(roomService, never()).releaseInterval(any(), any(), any(), any());
+	}
+
+	@Test
+	void declinedCardFailsReservationAndReleasesNights() throws Exception {
+		Reservation reservation = reservation("PENDING_PAYMENT");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
+			.thenThrow(new CardException("Your card was declined.", "req_1", "card_declined", null, "generic_decline", null, 402, null));
+
+		saga.execute(claimed(PaymentStep.authorize("r1", 5000L, "pm_1"), 1));
+
+		assertEquals("PAYMENT_FAILED", reservation.getStatus());
+		verify(roomService).releaseInterval("room1", "r1", reservation.getCheckIn(), reservation.getCheckOut());
+		assertEquals("DEAD", lastStepStatus());
+		// No hold was placed, nothing to give back at Stripe
+		assertTrue(enqueued.isEmpty());
+	}
+
+	@Test
+	void lastAttemptFailingAfterHoldReleasesIt() throws Exception {
+		Reservation reservation = reservation("PENDING_PAYMENT");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
+			.thenReturn(paymentIntent("pi_1", "requires_capture"));
+		when(transactionService.createTransaction(any(Transaction.class)))
+			.thenThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+		saga.execute(claimed(PaymentStep.authorize("r1", 5000L, "pm_1"), MAX_ATTEMPTS));
+
+		assertEquals("PAYMENT_FAILED", reservation.getStatus());
+		assertEquals("DEAD", lastStepStatus());
+		assertEquals(1, enqueued.size());
+		assertEquals("CANCEL", enqueued.get(0).getType());
+		assertEquals("pi_1", enqueued.get(0).getPaymentIntentId());
+	}
+
+	@Test
+	void reservationCancelledWhileHoldWasPlacedGetsHoldReleased() throws Exception {
+		when(reservationRepository.findById("r1"))
+			.thenReturn(Optional.of(reservation("PENDING_PAYMENT")))
+			.thenReturn(Optional.of(reservation("CANCELLED")));
+		when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
+			.thenReturn(paymentIntent("pi_1", "requires_capture"));
+
+		saga.execute(claimed(PaymentStep.authorize("r1", 5000L, "pm_1"), 1));
+
+		verify(transactionService, never()).createTransaction(any(Transaction.class));
+		assertEquals("DONE", lastStepStatus());
+		assertEquals(1, enqueued.size());
+		assertEquals("CANCEL", enqueued.get(0).getType());
+		assertEquals("pi_1", enqueued.get(0).getPaymentIntentId());
+	}
+
+
+	@Test
+	void cheaperUpdateKeepsHold() throws Exception {
+		Reservation reservation = awaitingUpdate();
+		holdOf(10000L);
+
+		saga.execute(claimed(moveTo(8000L), 1));
+
+		verify(stripeService, never()).incrementAuthorization(any(), any(), any());
+		verify(stripeService, never()).createPaymentIntent(any(), any(), any(), any(), any(), any());
+		assertMovedTo(reservation, "pi_1", 8000L);
+		verify(roomService).releaseInterval("room1", "r1", LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 13));
+		assertTrue(enqueued.isEmpty());
+	}
+
+	@Test
+	void dearerUpdateRaisesHoldInPlace() throws Exception {
+		Reservation reservation = awaitingUpdate();
+		holdOf(10000L);
+		when(stripeService.isIncrementalAuthorizationEnabled()).thenReturn(true);
+		when(stripeService.incrementAuthorization("pi_1", 12000L, "step1:increment")).thenReturn(paymentIntent("pi_1", "requires_capture"));
+
+		saga.execute(claimed(moveTo(12000L), 1));
+
+		verify(stripeService, never()).createPaymentIntent(any(), any(), any(), any(), any(), any());
+		assertMovedTo(reservation, "pi_1", 12000L);
+		assertTrue(enqueued.isEmpty());
+	}
+
+	@Test
+	void dearerUpdateReplacesHoldThatCannotBeRaised() throws Exception {
+		Reservation reservation = awaitingUpdate();
+		holdOf(10000L);
+		when(stripeService.isIncrementalAuthorizationEnabled()).thenReturn(true);
+		when(stripeService.incrementAuthorization(any(), any(), any())).thenThrow(new InvalidRequestException(
+			"This PaymentIntent is not eligible for incremental authorization.", null, "req_1", "payment_intent_unexpected_state", 400, null));
+		when(stripeService.createPaymentIntent(eq(12000L), eq("usd"), eq("cus_1"), eq("pm_1"), anyString(), eq("step1:authorize")))
+			.thenReturn(paymentIntent("pi_2", "requires_capture"));
+
+		saga.execute(claimed(moveTo(12000L), 1));
+
+		assertMovedTo(reservation, "pi_2", 12000L);
+		// The old hold is released only once the new one is in place
+		assertEquals(1, enqueued.size());
+		assertEquals("CANCEL", enqueued.get(0).getType());
+		assertEquals("pi_1", enqueued.get(0).getPaymentIntentId());
+	}
+
+	@Test
+	void dearerUpdateWithoutIncrementalAuthorizationReplacesHold() throws Exception {
+		Reservation reservation = awaitingUpdate();
+		holdOf(10000L);
+		when(stripeService.createPaymentIntent(eq(12000L), eq("usd"), eq("cus_1"), eq("pm_1"), anyString(), eq("step1:authorize")))
+			.thenReturn(paymentIntent("pi_2", "requires_capture"));
+
+		saga.execute(claimed(moveTo(12000L), 1));
+
+		verify(stripeService, never()).incrementAuthorization(any(), any(), any());
+		assertMovedTo(reservation, "pi_2", 12000L);
+		assertEquals(1, enqueued.size());
+		assertEquals("pi_1", enqueued.get(0).getPaymentIntentId());
+	}
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+	// A step as claimNext hands it to a worker
+	private static PaymentStep claimed(PaymentStep step, int attempts) {
+		step.setId("step1");
+		step.setStatus("RUNNING");
+		step.setAttempts(attempts);
+		step.setLeaseExpiresAt(Instant.now().plusSeconds(120));
+		return step;
+	}
+
+	private static Reservation reservation(String status) {
+		Reservation reservation = new Reservation();
+		reservation.setId("r1");
+		reservation.setUserId("u1");
+		reservation.setRoomId("room1");
+		reservation.setRoomNumber(101);
+		reservation.setCheckIn(LocalDate.of(2025, 3, 10));
+		reservation.setCheckOut(LocalDate.of(2025, 3, 13));
+		reservation.setNumGuests(2);
+		reservation.setTotalPrice(new BigDecimal("50.00"));
+		reservation.setStatus(status);
+		return reservation;
+	}
+
+	// Reservation r1 (room1, 10-13 March, hold pi_1) waiting for its update to be authorized
+	private Reservation awaitingUpdate() {
+		Reservation reservation = reservation("PENDING_PAYMENT");
+		reservation.setPaymentIntentId("pi_1");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		Transaction transaction = new Transaction();
+		transaction.setId("tx1");
+		transaction.setPaymentIntentId("pi_1");
+		transaction.setAmount(10000L);
+		when(transactionService.getTransactionByReservationId("r1")).thenReturn(transaction);
+		return reservation;
+	}
+
+	// Current hold pi_1 on card pm_1, as mirrored from Stripe
+	private void holdOf(long amountCapturable) {
+		StripePaymentIntent hold = new StripePaymentIntent();
+		hold.setId("pi_1");
+		hold.setStatus("requires_capture");
+		hold.setAmountCapturable(amountCapturable);
+		hold.setPaymentMethodId("pm_1");
+		when(paymentIntentMirror.find("pi_1")).thenReturn(Optional.of(hold));
+	}
+
+	// Move r1 to room2 for 20-23 March
+	private static PaymentStep moveTo(long amount) {
+		return PaymentStep.reauthorize("r1", "pi_1", amount, "room2", 202,
+			LocalDate.of(2025, 3, 20), LocalDate.of(2025, 3, 23), 2, BigDecimal.valueOf(amount, 2));
+	}
+
+	private void assertMovedTo(Reservation reservation, String paymentIntentId, long amount) {
+		assertEquals("PENDING", reservation.getStatus());
+		assertEquals("room2", reservation.getRoomId());
+		assertEquals(LocalDate.of(2025, 3, 20), reservation.getCheckIn());
+		assertEquals(paymentIntentId, reservation.getPaymentIntentId());
+		ArgumentCaptor<Transaction> transaction = ArgumentCaptor.forClass(Transaction.class);
+		verify(transactionService).updateTransaction(transaction.capture());
+		assertEquals(paymentIntentId, transaction.getValue().getPaymentIntentId());
+		assertEquals(amount, transaction.getValue().getAmount());
+		assertEquals("DONE", lastStepStatus());
+	}
+
+	private static PaymentIntent paymentIntent(String id, String status) {
+		PaymentIntent paymentIntent = new PaymentIntent();
+		paymentIntent.setId(id);
+		paymentIntent.setStatus(status);
+		paymentIntent.setAmount(5000L);
+		paymentIntent.setCurrency("usd");
+		return paymentIntent;
+	}
+
+	// $set of the last update that moved the step to another status
+	private Document lastStepSet() {
+		ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(), eq(PaymentStep.class));
+		Document last = null;
+		for (Update update : updates.getAllValues()) {
+			Document set = update.getUpdateObject().get("$set", Document.class);
+			if (set != null && set.containsKey("status")) {
+				last = set;
+			}
+		}
+		assertNotNull(last, "step status was never changed");
+		return last;
+	}
+
+	private String lastStepStatus() {
+		return lastStepSet().getString("status");
+	}
+}
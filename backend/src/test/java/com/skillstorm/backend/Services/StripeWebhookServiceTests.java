@@ -0,0 +1,86 @@
+package com.skillstorm.backend.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
+
+class StripeWebhookServiceTests {
+
+	private static final String SECRET = "whsec_test_secret";
+
+	private PaymentIntentMirrorService mirror;
+	private StripeWebhookService webhook;
+	private StripeWebhookSimulator stripe;
+
+	@BeforeEach
+	void setUp() {
+		mirror = mock(PaymentIntentMirrorService.class);
+		webhook = new StripeWebhookService(mirror, SECRET, 300);
+		stripe = new StripeWebhookSimulator(SECRET);
+	}
+
+	@Test
+	void paymentIntentEventUpdatesMirror() throws Exception {
+		StripeWebhookSimulator.Delivery delivery = stripe.paymentIntentEvent(
+			"payment_intent.amount_capturable_updated", 1700000000L, "pi_1", "requires_capture", 5000, "pm_1");
+
+		assertEquals("payment_intent.amount_capturable_updated", webhook.handle(delivery.payload(), delivery.signature()));
+
+		verify(mirror).apply(argThat(pi -> "pi_1".equals(pi.getId())
+				&& "requires_capture".equals(pi.getStatus())
+				&& "pm_1".equals(pi.getPaymentMethod())
+				&& pi.getAmountCapturable() == 5000L),
+			eq(1700000000L));
+	}
+
+	@Test
+	void chargeEventCarriesLast4() throws Exception {
+		StripeWebhookSimulator.Delivery delivery = stripe.chargeEvent("charge.succeeded", 1700000001L, "pi_1", "4242");
+
+		webhook.handle(delivery.payload(), delivery.signature());
+
+		verify(mirror).applyCharge(argThat(charge -> "pi_1".equals(charge.getPaymentIntent())
+				&& "4242".equals(charge.getPaymentMethodDetails().getCard().getLast4())));
+	}
+
+	@Test
+	void rejectsTamperedPayload() {
+		StripeWebhookSimulator.Delivery delivery = stripe.paymentIntentEvent(
+			"payment_intent.canceled", 1700000000L, "pi_1", "canceled", 5000, "pm_1");
+		String tampered = delivery.payload().replace("\"amount\": 5000", "\"amount\": 1");
+
+		assertThrows(SignatureVerificationException.class, () -> webhook.handle(tampered, delivery.signature()));
+		verifyNoInteractions(mirror);
+	}
+
+	@Test
+	void rejectsOtherSecretAndStaleSignature() {
+		StripeWebhookSimulator.Delivery delivery = stripe.paymentIntentEvent(
+			"payment_intent.succeeded", 1700000000L, "pi_1", "succeeded", 5000, "pm_1");
+		String otherSecret = new StripeWebhookSimulator("whsec_other").sign(delivery.payload(), Webhook.Util.getTimeNow());
+		String stale = stripe.sign(delivery.payload(), Webhook.Util.getTimeNow() - 3600);
+
+		assertThrows(SignatureVerificationException.class, () -> webhook.handle(delivery.payload(), otherSecret));
+		assertThrows(SignatureVerificationException.class, () -> webhook.handle(delivery.payload(), stale));
+		verifyNoInteractions(mirror);
+	}
+
+	@Test
+	void ignoresUnrelatedEvents() throws Exception {
+		StripeWebhookSimulator.Delivery delivery = stripe.event("customer.created", 1700000000L,
+			"{\"id\": \"cus_1\", \"object\": \"customer\"}");
+
+		assertEquals("customer.created", webhook.handle(delivery.payload(), delivery.signature()));
+		verifyNoInteractions(mirror);
+	}
+}
@@ -0,0 +1,64 @@
+package com.skillstorm.backend.Services;
+
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+
+// Builds Stripe webhook deliveries locally: event payloads shaped like Stripe's and a Stripe-Signature header
+// signed with the endpoint secret, so the webhook can be exercised without the Stripe CLI or network access
+class StripeWebhookSimulator {
+
+	record Delivery(String payload, String signature) {}
+
+	private final String secret;
+	private int sequence;
+
+	StripeWebhookSimulator(String secret) {
+		this.secret = secret;
+	}
+
+	Delivery paymentIntentEvent(String type, long created, String paymentIntentId, String status, long amount, String paymentMethodId) {
+		String object = """
+			{"id": "%s", "object": "payment_intent", "status": "%s", "amount": %d, "amount_capturable": %d,
+			 "amount_received": %d, "currency": "usd", "customer": "cus_test", "payment_method": "%s",
+			 "capture_method": "manual"}"""
+			.formatted(paymentIntentId, status, amount,
+				"requires_capture".equals(status) ? amount : 0,
+				"succeeded".equals(status) ? amount : 0,
+				paymentMethodId);
+		return deliver(type, created, object);
+	}
+
+	Delivery chargeEvent(String type, long created, String paymentIntentId, String last4) {
+		String object = """
+			{"id": "ch_%d", "object": "charge", "payment_intent": "%s", "amount": 5000, "currency": "usd",
+			 "payment_method_details": {"type": "card", "card": {"brand": "visa", "last4": "%s"}}}"""
+			.formatted(sequence + 1, paymentIntentId, last4);
+		return deliver(type, created, object);
+	}
+
+	Delivery event(String type, long created, String object) {
+		return deliver(type, created, object);
+	}
+
+	// Same signature scheme as Stripe: v1 = HMAC-SHA256(secret, "<timestamp>.<payload>")
+	String sign(String payload, long timestamp) {
+		try {
+			return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(secret, timestamp + "." + payload);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+
+//HELPER METHODS////////////////////////////////////////////////////////////////////////////////////////////
+
+	private Delivery deliver(String type, long created, String object) {
+		sequence++;
+		String payload = """
+			{"id": "evt_%d", "object": "event", "api_version": "%s", "created": %d, "livemode": false,
+			 "type": "%s", "data": {"object": %s}}"""
+			.formatted(sequence, Stripe.API_VERSION, created, type, object);
+		return new Delivery(payload, sign(payload, Webhook.Util.getTimeNow()));
+	}
+}
@@ -8,6 +8,7 @@ import RoomTable from '@/components/room-management/RoomTable';
 import RoomAvailabilityModal from '@/components/room-management/RoomAvailabilityModal';
 import AddEditRoomModal from '@/components/room-management/AddEditRoomModal';
 import type { Room, RoomType } from '@/types/types';
+import { omit } from '@/lib/utils';
 
 const PAGE_SIZE = 10;
 
@@ -136,7 +137,8 @@ const RoomSection: React.FC<RoomSectionProps> = ({ rooms, setRooms, roomTypes, i
             return;
         }
         try {
-            const result = await updateRoom({ ...updatedRoom, id: updatedRoom.id }).unwrap();
+            // datesReserved here is only the listed window, sending it back would drop the other nights
+            const result = await updateRoom({ ...omit(updatedRoom, 'datesReserved'), id: updatedRoom.id }).unwrap();
             // Sort by roomNumber after editing
             setRooms(
                 rooms
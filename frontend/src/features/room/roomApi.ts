@@ -15,9 +15,10 @@ export const roomApi = baseApi.injectEndpoints({
                 return response.data.message;
             }
         }),
-        getAllRooms: builder.query<Room[], void>({
-            query: () => ({
-                url: `/rooms/all`,
+        // Pass a window to also get each room's reserved nights in [datesFrom, datesTo)
+        getAllRooms: builder.query<Room[], { datesFrom: string; datesTo: string } | void>({
+            query: (window) => ({
+                url: window ? `/rooms/all?datesFrom=${window.datesFrom}&datesTo=${window.datesTo}` : `/rooms/all`,
                 method: 'GET',
             }),
             transformResponse: (response: Room[]) => {
@@ -24,7 +24,7 @@ import {
 } from '@/features/reservation/reservationApi';
 import Loader from '@/components/loader';
 
-const statuses = ['All statuses', 'PENDING', 'CONFIRMED', 'COMPLETED', 'CANCELLED'];
+const statuses = ['All statuses', 'PENDING_PAYMENT', 'PENDING', 'CONFIRMED', 'COMPLETED', 'CANCELLED', 'PAYMENT_FAILED'];
 
 const CalendarDateRangePicker = ({ startDate, endDate, onChange }: {
   startDate: Date | null;
@@ -239,7 +239,9 @@ const FilterPanel = ({
 const StatusBadge = ({ status }: { status: string }) => {
   // Map status to color classes
   const statusColors: Record<string, string> = {
+    PENDING_PAYMENT: 'bg-gray-100 text-gray-800',
     PENDING: 'bg-yellow-100 text-yellow-800',
+    PAYMENT_FAILED: 'bg-red-100 text-red-800',
     CONFIRMED: 'bg-blue-100 text-blue-800',
     COMPLETED: 'bg-green-100 text-green-800',
     CANCELLED: 'bg-red-100 text-red-800',
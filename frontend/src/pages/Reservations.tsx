@@ -330,17 +330,20 @@ export default function Reservations() {
   );
 
   const userId = useAppSelector((state) => state.auth.user?.id);
+  const [awaitingPayment, setAwaitingPayment] = useState(false);
 
   const {
     data: reservations,
     isLoading,
     refetch: refetchReservations
-  } = useGetUserReservationsQuery(userId ?? '', { refetchOnMountOrArgChange: true });
+  } = useGetUserReservationsQuery(userId ?? '', { refetchOnMountOrArgChange: true, pollingInterval: awaitingPayment ? 2000 : 0 });
   const dispatch = useAppDispatch();
 
   useEffect(() => {
     if (reservations) {
       dispatch(setUserReservations(reservations));
+      // Holds are placed in the background, refresh until none is waiting
+      setAwaitingPayment(reservations.some((r) => r.status === 'PENDING_PAYMENT'));
     }
   }, [reservations]);
 
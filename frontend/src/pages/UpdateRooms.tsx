@@ -10,6 +10,13 @@ import { useGetAllRoomsQuery } from "@/features/room/roomApi";
 
 import type { Room, RoomType } from "@/types/types";
 
+// Reserved nights shown in the availability modal: the last 30 days and the next 11 months
+const isoDay = (offsetDays: number) => {
+  const date = new Date();
+  date.setDate(date.getDate() + offsetDays);
+  return date.toISOString().slice(0, 10);
+};
+
 const UpdateRooms: React.FC = () => {
   const [rooms, setRooms] = useState<Room[]>([]);
   const { data: apiRoomTypes = [], isLoading: isRoomTypesLoading, isError: isRoomTypesError, refetch: refetchRoomTypes } = useGetRoomTypesQuery();
@@ -25,7 +32,8 @@ const UpdateRooms: React.FC = () => {
   };
 
   // Fetch rooms from API
-  const { data: apiRooms = [], isLoading, isError } = useGetAllRoomsQuery();
+  const [datesWindow] = useState(() => ({ datesFrom: isoDay(-30), datesTo: isoDay(330) }));
+  const { data: apiRooms = [], isLoading, isError } = useGetAllRoomsQuery(datesWindow);
   useEffect(() => {
     setRooms(apiRooms);
   }, [apiRooms]);
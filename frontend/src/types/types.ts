@@ -56,7 +56,7 @@ export interface Room {
   roomNumber: string;
   typeId: string;
   status: string;
-  datesReserved: string[]; // Array of ISO date strings
+  datesReserved?: string[]; // Array of ISO date strings, only sent by /rooms/all when a date window is requested
 }
 
 export interface Transaction {